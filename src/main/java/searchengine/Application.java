@@ -2,10 +2,24 @@ package searchengine;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.security.Security;
 
 @SpringBootApplication
+@EnableScheduling
 public class Application {
+
+    private static final String DNS_CACHE_TTL = "networkaddress.cache.ttl";
+    private static final String DEFAULT_DNS_CACHE_TTL = "300"; // Секунд
+
     public static void main(String[] args) {
+        // Краулер обращается к нескольким хостам тысячи раз, кешируем DNS дольше стандартных 30 секунд.
+        // Настройка читается JVM один раз, поэтому задаётся до запуска контекста.
+        if (Security.getProperty(DNS_CACHE_TTL) == null) {
+            Security.setProperty(DNS_CACHE_TTL, DEFAULT_DNS_CACHE_TTL);
+        }
+
         SpringApplication.run(Application.class, args);
     }
 }
@@ -0,0 +1,22 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Правила приведения адресов страниц к каноническому виду.
+ * Имена параметров запроса сравниваются без учёта регистра, «utm_*» - все параметры с префиксом utm_.
+ */
+@Getter
+@Setter
+public class CanonicalRules {
+    private List<String> keepParams = new ArrayList<>(); // Сохраняемые параметры запроса, «*» - все
+    private List<String> dropParams = new ArrayList<>(); // Удаляемые параметры, даже если подходят под keep-params
+    private boolean caseSensitive = false; // false - путь приводится к нижнему регистру
+    private List<String> indexFiles = new ArrayList<>(List.of("index.html", "index.htm", "index.php"));
+    private boolean canonicalLinks = true; // Учитывать <link rel="canonical">
+    private boolean redirects = true; // Сохранять содержимое под адресом, на который выполнено перенаправление
+}
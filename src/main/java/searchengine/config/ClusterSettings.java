@@ -0,0 +1,19 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Совместная индексация несколькими экземплярами приложения с общей БД. Сайт обходит узел, получивший его аренду;
+ * узел продлевает аренду каждые heartbeat-interval мс. Если узел перестал её продлевать (остановлен или упал),
+ * через lease-timeout мс обход сайта продолжает другой узел. Часы узлов должны быть синхронизированы.
+ */
+@Getter
+@Setter
+public class ClusterSettings {
+    private boolean enabled = false;
+    private String nodeId = ""; // Имя узла в аренде, пусто - pid@host
+    private long leaseTimeout = 60000;
+    private long heartbeatInterval = 10000;
+    private int maxSites = 0; // Сайтов, обходимых узлом одновременно, 0 - без ограничения
+}
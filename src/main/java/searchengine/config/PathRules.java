@@ -0,0 +1,22 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Отбор путей для обхода и пороги распознавания ловушек - бесконечных пространств адресов
+ * (календари, фильтры каталога, идентификаторы сессий в пути).
+ * В шаблонах путей «*» - любая последовательность символов: «/calendar/*», «*sort=*».
+ */
+@Getter
+@Setter
+public class PathRules {
+    private List<String> include = new ArrayList<>(); // Обходятся только подходящие пути, пусто - все
+    private List<String> exclude = new ArrayList<>(); // Не обходятся, даже если подходят под include
+    private int maxSegmentRepeats = 3; // Сколько раз один сегмент может встретиться в пути, 0 - без проверки
+    private int maxSegments = 20; // Число сегментов пути, 0 - без ограничения
+    private int maxTemplatePages = 0; // Адреса одного вида за обход (числа и значения параметров заменены), 0 - без ограничения
+}
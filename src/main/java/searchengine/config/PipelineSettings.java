@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Параллельность стадий обработки страниц (общая для всех сайтов). 0 - по числу процессоров.
+ */
+@Getter
+@Setter
+public class PipelineSettings {
+    private int fetch = 64; // Одновременных сетевых запросов
+    private int parse = 0; // Разбор HTML и выделение текста
+    private int lemmatize = 0; // Морфологический анализ
+    private int persist = 8; // Одновременных записей в БД, не больше пула соединений
+}
@@ -0,0 +1,19 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Настройки фонового повторного обхода проиндексированных сайтов.
+ * Интервал посещения каждой страницы подстраивается под то, как часто она меняется.
+ */
+@Getter
+@Setter
+public class RevisitSettings {
+    private boolean enabled = true;
+    private long checkInterval = 60000; // Мс между проверками страниц, которые пора посетить
+    private int minInterval = 60; // Минут, наименьший интервал посещения страницы
+    private int maxInterval = 43200; // Минут, наибольший интервал (30 дней)
+    private int initialInterval = 1440; // Минут, интервал после первого посещения
+    private int pagesPerHour = 500; // Бюджет загрузок сайта в час, переопределяется revisit-pages-per-hour сайта
+}
@@ -13,4 +13,23 @@ public class SearchBot {
     private String userAgent;
     private String referer;
     private RequestsInterval requestsInterval;
+    private int concurrency = 1; // Число одновременных запросов к одному хосту (начальное при adaptive-concurrency)
+    private boolean adaptiveConcurrency = true; // Подбор числа запросов по времени ответа и ошибкам сервера
+    private int maxConcurrency = 8;
+    private long targetLatency = 2000; // Миллисекунд, при большем времени ответа число запросов уменьшается
+    private int workers = 16; // Число одновременно обрабатываемых страниц одного сайта
+    private int totalWorkers = 32; // Число одновременно обрабатываемых страниц всех сайтов, делится по весам сайтов
+    private PipelineSettings pipeline = new PipelineSettings();
+    private int connectTimeout = 10_000; // Миллисекунд
+    private int readTimeout = 30_000; // Миллисекунд
+    private int maxPageSize = 5 * 1024 * 1024; // Байт, больше не загружается
+    private boolean truncateLargePages = true; // true - большая страница обрезается, false - пропускается
+    private int memoryBudget = 256; // Мегабайт под одновременно обрабатываемые страницы всех сайтов
+    private boolean useSitemaps = true; // Ставить в очередь адреса из sitemap.xml
+    private int sitemapLimit = 50_000; // Максимальное число адресов из sitemap одного сайта
+    private int retryAttempts = 3; // Повторных попыток загрузки страницы при временной ошибке
+    private long retryDelay = 5_000; // Миллисекунд до первой повторной попытки, далее удваивается
+    private long maxRetryDelay = 300_000; // Миллисекунд, наибольшая пауза перед повторной попыткой
+    private double maxErrorRate = 0.5; // Доля страниц с ошибками, при превышении которой индексация сайта прерывается
+    private int errorRateMinPages = 20; // Доля ошибок проверяется после обработки этого числа страниц
 }
@@ -11,6 +11,8 @@ import org.springframework.stereotype.Component;
 @ConfigurationProperties(prefix = "search-settings")
 public class SearchSettings {
     int wordsRange = 2;
+    // Степень авторитетности страницы (по ссылкам сайта) в релевантности; 0 - авторитетность не учитывается
+    double authorityWeight = 0.3;
 
     public void setWordsRange(int wordsRange) {
         if (wordsRange < 1) {
@@ -18,4 +20,11 @@ public class SearchSettings {
         }
         this.wordsRange = wordsRange;
     }
+
+    public void setAuthorityWeight(double authorityWeight) {
+        if (authorityWeight < 0) {
+            throw new IllegalArgumentException("authorityWeight не может быть меньше 0");
+        }
+        this.authorityWeight = authorityWeight;
+    }
 }
@@ -8,4 +8,18 @@ import lombok.Setter;
 public class Site {
     private String url;
     private String name;
+
+    // Переопределения настроек search-bot-settings для сайта
+    private Integer concurrency;
+    private Integer maxConcurrency;
+    private RequestsInterval requestsInterval;
+    private CanonicalRules canonical;
+    private PathRules paths;
+
+    // Ограничения обхода сайта, null - без ограничения
+    private Integer maxPages;
+    private Integer maxDepth;
+    private Integer revisitPagesPerHour; // Бюджет повторного обхода, null - revisit.pages-per-hour
+    private Integer weight; // Доля total-workers относительно других сайтов, null - 1
+    private Boolean removeBoilerplate; // null - remove-boilerplate из indexing-settings
 }
@@ -13,4 +13,24 @@ import java.util.List;
 @ConfigurationProperties(prefix = "indexing-settings")
 public class SitesList {
     private List<Site> sites;
+    private boolean incremental = true; // Переиндексация без предварительного удаления данных сайтов
+    private boolean resume = true; // Возобновление прерванной индексации при запуске приложения
+    private CanonicalRules canonical = new CanonicalRules(); // Переопределяется для сайта целиком
+    private PathRules paths = new PathRules(); // Переопределяется для сайта целиком
+    private int nearDuplicateDistance = 3; // Число различающихся бит SimHash у копий (0-3), -1 - не искать копии
+    private RevisitSettings revisit = new RevisitSettings();
+    private boolean removeBoilerplate = true; // Не индексировать блоки шаблона сайта, переопределяется для сайта
+    private int boilerplateRepeats = 10; // Число страниц, на которых должен встретиться блок шаблона
+    private ClusterSettings cluster = new ClusterSettings(); // Совместная индексация несколькими экземплярами
+
+    public Site findSite(String url) {
+        if (url == null || sites == null) {
+            return null;
+        }
+
+        return sites.stream()
+                .filter(site -> url.equalsIgnoreCase(site.getUrl()))
+                .findFirst()
+                .orElse(null);
+    }
 }
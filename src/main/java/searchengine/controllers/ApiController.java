@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import searchengine.dto.indexing.IndexPageRequest;
+import searchengine.dto.indexing.IndexingJobsResponse;
 import searchengine.dto.indexing.IndexingResponse;
 import searchengine.dto.search.SearchResponse;
 import searchengine.dto.statistics.StatisticsResponse;
@@ -51,6 +52,63 @@ public class ApiController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping({"/startSiteIndexing", "/startsiteindexing"})
+    public ResponseEntity<IndexingResponse> startSiteIndexing(@RequestParam String url) {
+        var response = indexingService.startSiteIndexing(url);
+
+        if (!response.isResult()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(response);
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping({"/stopSiteIndexing", "/stopsiteindexing"})
+    public ResponseEntity<IndexingResponse> stopSiteIndexing(@RequestParam String url) {
+        var response = indexingService.stopSiteIndexing(url);
+
+        if (!response.isResult()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(response);
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping({"/indexNewSites", "/indexnewsites"})
+    public ResponseEntity<IndexingResponse> indexNewSites() {
+        var response = indexingService.indexNewSites();
+
+        if (!response.isResult()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(response);
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping({"/rebuildIndex", "/rebuildindex"})
+    public ResponseEntity<IndexingResponse> rebuildIndex() {
+        var response = indexingService.rebuildIndex();
+
+        if (!response.isResult()) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(response);
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping({"/indexingJobs", "/indexingjobs"})
+    public ResponseEntity<IndexingJobsResponse> indexingJobs() {
+        return ResponseEntity.ok(indexingService.getJobs());
+    }
+
     @PostMapping({"/indexPage", "/indexpage"})
     public ResponseEntity<IndexingResponse> indexPage(IndexPageRequest body) {
         var url = body.getUrl();
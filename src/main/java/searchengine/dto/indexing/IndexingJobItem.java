@@ -0,0 +1,20 @@
+package searchengine.dto.indexing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+@Data
+public class IndexingJobItem {
+    private String url;
+    private String name;
+    private String state; // indexing, stopping, finished
+    private long startTime;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long finishTime;
+
+    private int pages; // Страницы, поставленные в очередь обходом
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long stopLatency; // Мс от запроса остановки до завершения обхода
+}
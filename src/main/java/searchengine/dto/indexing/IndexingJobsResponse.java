@@ -0,0 +1,15 @@
+package searchengine.dto.indexing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class IndexingJobsResponse {
+    private boolean result;
+    private List<IndexingJobItem> jobs; // Задачи этого узла
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String node; // Имя узла при совместной индексации
+}
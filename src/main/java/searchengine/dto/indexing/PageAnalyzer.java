@@ -1,14 +1,10 @@
 package searchengine.dto.indexing;
 
-import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
-import org.jsoup.UnsupportedMimeTypeException;
-import org.jsoup.nodes.Document;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Scope;
@@ -21,11 +17,25 @@ import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
 import searchengine.services.LemmasFinder;
-
+import searchengine.services.crawler.BoilerplateFilter;
+import searchengine.services.crawler.CrawlFrontier;
+import searchengine.services.crawler.FetchResult;
+import searchengine.services.crawler.IndexingPipeline;
+import searchengine.services.crawler.IndexingPipeline.Stage;
+import searchengine.services.crawler.LinkGraph;
+import searchengine.services.crawler.MemoryBudget;
+import searchengine.services.crawler.NearDuplicates;
+import searchengine.services.crawler.PageFetcher;
+import searchengine.services.crawler.PolitenessScheduler;
+import searchengine.services.crawler.RevisitPolicy;
+import searchengine.services.crawler.SiteCrawl;
+import searchengine.services.crawler.UrlCanonicalizer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ForkJoinTask;
-import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -35,7 +45,10 @@ import java.util.stream.Collectors;
 @Setter
 @Component
 @Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
-public class PageAnalyzer extends RecursiveAction {
+public class PageAnalyzer implements Runnable {
+
+    // Страница в памяти: тело ответа, HTML в виде строки, текст и ссылки
+    private static final int MEMORY_FACTOR = 4;
 
     private final ApplicationContext applicationContext;
     private final SearchBot searchBot;
@@ -43,147 +56,316 @@ public class PageAnalyzer extends RecursiveAction {
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
+    private final PolitenessScheduler politenessScheduler;
+    private final PageFetcher pageFetcher;
+    private final CrawlFrontier crawlFrontier;
+    private final NearDuplicates nearDuplicates;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final MemoryBudget memoryBudget;
+    private final RevisitPolicy revisitPolicy;
+    private final BoilerplateFilter boilerplateFilter;
+    private final IndexingPipeline indexingPipeline;
 
-    private final Random random = new Random();
     private Page page;
+    private ParsedPage parsedPage; // Результат разбора загруженной страницы
+    private SiteCrawl crawl; // Обход сайта, в очередь которого ставятся найденные страницы
+    private boolean validatorsPending; // Валидаторы ответа ещё не сохранены
+    private String validatorsEtag;
+    private String validatorsLastModified;
+    private String validatorsHash;
+    private Boolean contentChanged; // null - содержимое страницы получено впервые
+    private boolean wasIndexed; // У страницы до обработки были индексы
+    private long reservedBytes; // Учтено в бюджете памяти
+    private int attempt; // Номер повторной попытки загрузки, 0 - первая
+    private boolean retrying; // Страница поставлена в очередь повторных попыток
+    private boolean failed; // Страница не обработана из-за ошибки
+    private boolean notModified; // Ответ 304 или содержимое с прежним хешем
+    private boolean coldTemplate; // Текст выделен до заполнения счётчиков блоков шаблона сайта
 
-    @Getter(AccessLevel.NONE)
-    @Setter(AccessLevel.NONE)
-    private List<PageAnalyzer> children = new ArrayList<>(); // Подчинённые задачи
-
-    public static String getNormalizedPath(Site site, String url) {
-        url = url.strip();
+    @Override
+    public void run() {
+        try {
+            if (analyzeStopped()) {
+                return;
+            }
 
+            reserveMemory(page.getContent().length());
+            analyzePage();
+            if (retrying || !page.canBeParsed() || analyzeStopped()) {
+                return;
+            }
 
-        var endIndex = url.indexOf('?');
-        if (endIndex != -1) {
-            url = url.substring(0, endIndex);
-        }
+            var withinDepth = crawl.isWithinDepth(page.getDepth() + 1);
+            if (!withinDepth && parsedPage == null && page.getOutLinks() != null) {
+                return; // Страница не изменилась, её ссылки уже сохранены
+            }
 
-        // Приведение к единому виду
-        if (url.endsWith("/")) {
-            url = url.substring(0, url.length() - 1);
-        }
+            var paths = findNewPaths();
+            saveOutLinks(paths);
+            if (!withinDepth || analyzeStopped()) {
+                return;
+            }
 
-        url = url.toLowerCase();
+            var newPages = findNewPages(paths);
 
+            if (analyzeStopped()) {
+                return;
+            }
 
-        var rootUrl = site.getUrl().toLowerCase();
-        if (url.startsWith(rootUrl)) {
-            url = url.substring(rootUrl.length());
+            crawl.enqueue(newPages);
+        } catch (Exception e) {
+            registerUndefinedException(e);
+        } finally {
+            releaseMemory();
+            if (!retrying) {
+                countResult();
+            }
+            crawl.pageDone();
         }
+    }
 
+    public boolean isCancelled() {
+        return crawl != null && crawl.isCancelled();
+    }
 
-        var slashesIndex = url.indexOf("://");
-        if (slashesIndex > 0 && slashesIndex + 1 == url.indexOf("/")) {
-            throw new IllegalArgumentException(
-                    "URL \"" + url + "\" должен начинаться с \"" + rootUrl + "\" или с \"/\"");
+    private void enterInterruptible() {
+        if (crawl != null) {
+            crawl.enterInterruptible();
         }
+    }
 
-
-        if (!url.startsWith("/")) {
-            url = "/" + url;
+    private void exitInterruptible() {
+        if (crawl != null) {
+            crawl.exitInterruptible();
         }
-
-        return url;
     }
 
-    private String getNormalizedPath(String url) {
-        return getNormalizedPath(page.getSite(), url);
-    }
+    /**
+     * Отметка об обходе (last_crawled), валидаторы и время следующего посещения сохраняются только после обновления лемм,
+     * поэтому страница, обработка которой прервалась, будет обработана заново при возобновлении обхода.
+     */
+    public void analyzePage() {
+        wasIndexed = page.getId() != 0 && page.canBeParsed();
+        parsedPage = getParsedPage();
 
-    @Override
-    public boolean cancel(boolean mayInterruptIfRunning) {
-        if (!cancelChildrenTasks(mayInterruptIfRunning)) {
-            return false;
+        if (isCancelled() || Thread.currentThread().isInterrupted()) {
+            return;
         }
 
-        return super.cancel(mayInterruptIfRunning);
-    }
-
-    @Override
-    protected void compute() {
-        randomTimeout();
+        if (parsedPage == null && notModified && page.getDuplicateOf() != null && !page.getContent().isEmpty()) {
+            // Оригинал копии мог измениться или стать недоступным: копия проверяется заново по сохранённому содержимому
+            try (var stage = indexingPipeline.enter(Stage.PARSE)) {
+                parsedPage = ParsedPage.parse(Jsoup.parse(page.getContent(), page.getUrl()), page.getContent());
+            }
+        }
 
-        if (analyzeStopped()) {
+        if (parsedPage == null) {
+            if (!retrying && !page.canBeParsed()) {
+                // Страница стала недоступной: удаляем её леммы и индексы
+                if (wasIndexed) {
+                    analyzeLemmasChanges(Collections.emptyMap());
+                }
+                nearDuplicates.remove(page);
+                if (page.getDuplicateOf() == null) {
+                    releaseCopies();
+                }
+                markCrawled();
+            }
             return;
         }
 
-        analyzePage();
-        if (!page.canBeParsed()) {
+        // Копия канонической или почти полная копия уже проиндексированной страницы не лемматизируется
+        if (registerCanonical()) {
+            markCrawled();
             return;
         }
 
-        if (analyzeStopped()) {
+        // Текст без повторяющихся на страницах сайта блоков шаблона (меню, подвалы, баннеры)
+        String text;
+        try (var stage = indexingPipeline.enter(Stage.PARSE)) {
+            coldTemplate = !boilerplateFilter.isWarm(page.getSite());
+            text = boilerplateFilter.extractContent(page, parsedPage);
+        }
+        if (registerDuplicate(text)) {
+            markCrawled();
             return;
         }
 
-        var newPages = findNewPages();
-        forkChildren(newPages);
+        // Леммы
+        var lemmasFinder = applicationContext.getBean(LemmasFinder.class);
+        Map<String, Integer> lemmas;
+        try (var stage = indexingPipeline.enter(Stage.LEMMATIZE)) {
+            lemmas = lemmasFinder.findLemmas(text);
+        }
 
-        if (analyzeStopped()) {
+        if (isCancelled()) {
             return;
         }
 
-        joinChildren();
+        analyzeLemmasChanges(lemmas);
 
-        if (analyzeStopped()) {
-            return;
+        if (!isCancelled()) {
+            markCrawled();
+            requeueColdPages();
         }
+    }
 
+    /**
+     * Страница, указывающая через rel=canonical на другой адрес сайта, сохраняется как копия канонической
+     * страницы, которая ставится в очередь обхода.
+     */
+    private boolean registerCanonical() {
         var site = page.getSite();
-        if (page.isRoot() && site.getStatus() == IndexingStatus.INDEXING) {
-            log.info("Завершено полное индексирование {} с URL {}", site.getName(), site.getUrl());
-            site.setStatus(IndexingStatus.INDEXED);
-            saveSite(site);
+        var canonicalHref = parsedPage.getCanonical();
+        if (canonicalHref == null || !urlCanonicalizer.getRules(site.getUrl()).isCanonicalLinks()) {
+            return false;
         }
-    }
 
-    private void randomTimeout() {
-        synchronized (page.getSite()) {
-            try {
-                var interval = searchBot.getRequestsInterval(); // Интервал миллисекунд
-                if (interval == null) {
-                    return;
-                }
+        var canonicalPath = urlCanonicalizer.canonicalize(site.getUrl(), page.getUrl(), canonicalHref);
+        if (canonicalPath == null || canonicalPath.equals(page.getPath())) {
+            return false;
+        }
 
-                var min = interval.getMin();
-                var time = min;
-                var max = interval.getMax();
-                if (max != null && max > min) {
-                    time += random.nextInt(max - min + 1);
-                }
+        if (crawl != null) {
+            crawl.enqueue(crawlFrontier.admit(crawl, List.of(canonicalPath), page.getDepth()));
+        }
 
-                if (time == 0) {
-                    return;
-                }
+        // Страницы, ссылающиеся друг на друга как на канонические, индексируются
+        var originalId = pageRepository.findOriginalId(site, canonicalPath, page.getId());
+        if (originalId == null) {
+            return false;
+        }
 
-                Thread.sleep(time);
-            } catch (Exception e) {
-                e.printStackTrace(System.err);
+        var wasOriginal = page.getDuplicateOf() == null;
+        page.setDuplicateOf(originalId);
+        page.setSimHash(null);
+        nearDuplicates.remove(page);
+        if (wasOriginal) {
+            releaseCopies();
+        }
+
+        if (wasIndexed && wasOriginal) {
+            analyzeLemmasChanges(Collections.emptyMap());
+        }
+
+        return !isCancelled();
+    }
+
+    /**
+     * Вычисляет SimHash текста и ищет страницу сайта, копией которой является текущая.
+     * Индексы страницы, ставшей копией, удаляются.
+     */
+    private boolean registerDuplicate(String text) {
+        var wasOriginal = page.getDuplicateOf() == null;
+        var previousHash = page.getSimHash();
+        var simHash = SimHash.compute(text);
+        page.setSimHash(simHash);
+
+        if (simHash == null) {
+            nearDuplicates.remove(page);
+            page.setDuplicateOf(null);
+            if (wasOriginal && previousHash != null) {
+                releaseCopies();
             }
+            return false;
+        }
+
+        var original = nearDuplicates.findOriginal(page, simHash);
+        page.setDuplicateOf(original);
+        // Копии оригинала, который изменился или сам стал копией, проверяются заново
+        if (wasOriginal && previousHash != null && (original != null || !previousHash.equals(simHash))) {
+            releaseCopies();
+        }
+        if (original == null) {
+            return false;
+        }
+
+        log.debug("{}: копия страницы с id {}", page.getUrl(), original);
+        if (wasIndexed && wasOriginal) {
+            analyzeLemmasChanges(Collections.emptyMap());
         }
+
+        return !isCancelled();
     }
 
-    public void analyzePage() {
-        var html = getPageHtml();
+    /**
+     * Страница перестала быть оригиналом для своих копий (удалена, недоступна, изменилась или стала копией):
+     * копии загружаются заново без валидаторов и снова проверяются на совпадение.
+     */
+    private void releaseCopies() {
+        if (page.getId() == 0) {
+            return;
+        }
+
+        List<Integer> copyIds;
+        try (var stage = indexingPipeline.enter(Stage.PERSIST)) {
+            copyIds = pageRepository.findIdsByDuplicateOf(page.getId());
+            if (copyIds.isEmpty()) {
+                return;
+            }
+            pageRepository.releaseCopies(page.getId(), LocalDateTime.now());
+        }
+        log.debug("{}: {} копий страницы будут проверены заново", page.getUrl(), copyIds.size());
+
+        // Без обхода копии посещаются повторным обходом (next_visit) или при следующей индексации
+        enqueue(copyIds);
+    }
 
-        if (html == null || isCancelled()) {
+    /**
+     * Страницы, лемматизированные до заполнения счётчиков блоков шаблона, обрабатываются заново.
+     * Их валидаторы не сохранялись, поэтому они загружаются и лемматизируются полностью.
+     */
+    private void requeueColdPages() {
+        var coldPages = boilerplateFilter.takeColdPages(page.getSite());
+        if (coldPages.isEmpty()) {
             return;
         }
 
-        // Леммы
-        var lemmasFinder = applicationContext.getBean(LemmasFinder.class);
-        var lemmas = lemmasFinder.findLemmasInHtml(html);
+        log.info("{}: {} страниц, обработанных до распознавания шаблона сайта, будут обработаны заново",
+                page.getSite().getUrl(), coldPages.size());
+        enqueue(coldPages);
+    }
 
-        if (isCancelled()) {
+    private void enqueue(List<Integer> pageIds) {
+        if (crawl == null || crawl.isStopped()) {
             return;
         }
 
-        analyzeLemmasChanges(lemmas);
+        for (var pageId : pageIds) {
+            var queuedPage = new Page();
+            queuedPage.setId(pageId);
+            queuedPage.setDepth(page.getDepth());
+            crawl.enqueue(queuedPage);
+        }
+    }
+
+    private void markCrawled() {
+        if (validatorsPending) {
+            // Без валидаторов страница с текстом шаблона в индексе обрабатывается заново при следующем посещении
+            page.setEtag(coldTemplate ? null : validatorsEtag);
+            page.setLastModified(coldTemplate ? null : validatorsLastModified);
+            page.setContentHash(coldTemplate ? null : validatorsHash);
+            revisitPolicy.schedule(page, contentChanged);
+            validatorsPending = false;
+        }
+        page.setLastCrawled(LocalDateTime.now());
+
+        // Содержимое уже сохранено, обновляются только валидаторы, отпечаток и отметка об обходе
+        try (var stage = indexingPipeline.enter(Stage.PERSIST)) {
+            pageRepository.updateCrawlState(page.getId(), page.getEtag(), page.getLastModified(),
+                    page.getContentHash(), page.getLastCrawled(), page.getSimHash(), page.getDuplicateOf(),
+                    page.getRevisitInterval(), page.getNextVisit());
+        }
     }
 
     private void analyzeLemmasChanges(Map<String, Integer> lemmas) {
+        // Место в стадии занимается до монитора сайта, чтобы ожидание стадии не задерживало другие страницы сайта
+        try (var stage = indexingPipeline.enter(Stage.PERSIST)) {
+            updateLemmas(lemmas);
+        }
+    }
+
+    private void updateLemmas(Map<String, Integer> lemmas) {
         var site = page.getSite();
 
         synchronized (site) {
@@ -224,41 +406,184 @@ public class PageAnalyzer extends RecursiveAction {
         }
     }
 
-    private String getPageHtml() {
-        Document document = null;
+    /**
+     * Загружает и однократно разбирает страницу.
+     * Возвращает {@code null}, если страницу не удалось получить или она не изменилась с прошлой индексации.
+     */
+    private ParsedPage getParsedPage() {
+        ParsedPage parsed = null;
         int statusCode = -1;
 
-        try {
+        // Пауза между запросами и сам запрос прерываются отменой обхода, дальнейшие шаги - нет
+        enterInterruptible();
+        // Пауза между запросами применяется только к сетевому запросу, без захвата монитора сайта.
+        // Место в стадии fetch занимается после паузы хоста, чтобы ожидание одного хоста не занимало общую ёмкость
+        try (var permit = politenessScheduler.acquire(page.getSite())) {
+
+            FetchResult response;
+            try (var fetchStage = indexingPipeline.enterInterruptibly(Stage.FETCH)) {
+                // Время ответа хоста отсчитывается от отправки запроса, без ожидания места в стадии
+                permit.startRequest();
+                response = page.canBeParsed()
+                        ? pageFetcher.fetchPage(page.getUrl(), page.getEtag(), page.getLastModified())
+                        : pageFetcher.fetchPage(page.getUrl(), null, null);
+            } catch (InterruptedException e) {
+                permit.abandon(); // Прерванный отменой запрос не считается перегрузкой хоста
+                throw e;
+            } catch (IOException e) {
+                if (isCancelled()) {
+                    permit.abandon();
+                }
+                throw e;
+            } finally {
+                exitInterruptible();
+            }
+            statusCode = response.getStatusCode();
+            permit.report(statusCode, response.header("Retry-After"));
+            permit.close();
 
-            var response = Jsoup.connect(page.getUrl())
-                    .userAgent(searchBot.getUserAgent())
-                    .referrer(searchBot.getReferer())
-                    .execute();
-            statusCode = response.statusCode();
-            document = response.parse();
-        } catch (HttpStatusException e) {
+            if (response.isTransientError()) {
+                if (retryLater("HTTP " + statusCode)) {
+                    return null;
+                }
+                failed = true;
+            }
+            reserveMemory(response.getBody().length);
 
-            registerHttpStatusException(e);
-        } catch (UnsupportedMimeTypeException e) {
+            if (!followRedirect(response)) {
+                return null;
+            }
 
-            registerMimeTypeException(e);
+            var hasContent = !response.isError() && response.isSupportedContentType();
+            var contentHash = hasContent ? response.getContentHash() : null;
+            if (response.isNotModified() || isSameContent(contentHash)) {
+                registerNotModified(response);
+            } else if (response.isError()) {
+                registerHttpStatus(statusCode);
+            } else if (!response.isSupportedContentType()) {
+                registerMimeType(response.getContentType());
+            } else if (response.isTruncated() && response.getBody().length == 0) {
+                registerHttpStatus(413); // Страница больше max-page-size
+            } else {
+                try (var parseStage = indexingPipeline.enter(Stage.PARSE)) {
+                    parsed = parse(response);
+                }
+                // Применяются в markCrawled(); сам ответ не удерживается, чтобы освободить тело
+                validatorsPending = true;
+                validatorsEtag = response.header("ETag");
+                validatorsLastModified = response.header("Last-Modified");
+                validatorsHash = contentHash;
+                contentChanged = page.getContentHash() == null ? null : true;
+            }
+        } catch (InterruptedException e) {
+            exitInterruptible();
+            if (!isCancelled()) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        } catch (IOException e) {
+            // Таймаут или обрыв соединения; после отмены обхода ошибка не записывается
+            if (!isCancelled() && !retryLater(e.toString())) {
+                registerUndefinedException(e);
+            }
         } catch (Exception e) {
             registerUndefinedException(e);
         }
 
-        if (document == null || isCancelled()) {
+        if (parsed == null || isCancelled()) {
             return null;
         }
 
-        var html = document.html();
-
         page.setCode(statusCode);
-        page.setContent(html);
+        page.setContent(parsed.getHtml());
         savePage(page);
 
         updateSite();
 
-        return html;
+        return parsed;
+    }
+
+    /**
+     * Ответ на запрос, перенаправленный на другой адрес сайта, относится к странице этого адреса:
+     * текущая страница сохраняется как перенаправление, а ответ обрабатывается для страницы-цели,
+     * если обход ещё не обрабатывал её. Возвращает {@code false}, если ответ обрабатывать не нужно.
+     */
+    private boolean followRedirect(FetchResult response) {
+        var siteUrl = page.getSite().getUrl();
+        if (crawl == null || !urlCanonicalizer.getRules(siteUrl).isRedirects()) {
+            return true;
+        }
+
+        var targetPath = urlCanonicalizer.canonicalize(siteUrl, null, response.getUri().toString());
+        if (page.getPath().equals(targetPath)) {
+            return true;
+        }
+
+        var targets = targetPath == null ? List.<Page>of()
+                : crawlFrontier.admit(crawl, List.of(targetPath), page.getDepth());
+        registerRedirect(response);
+
+        if (targets.isEmpty()) {
+            return false; // Адрес другого сайта или страница уже обработана обходом
+        }
+
+        var target = targets.get(0);
+        if (response.isNotModified()) {
+            crawl.enqueue(target); // Ответ получен с валидаторами исходной страницы
+            return false;
+        }
+
+        // Очередь хранит только идентификаторы, страница-цель загружается целиком
+        var targetPage = pageRepository.findById(target.getId()).orElse(null);
+        if (targetPage == null) {
+            return false;
+        }
+        targetPage.setSite(target.getSite());
+        targetPage.setDepth(target.getDepth());
+
+        page = targetPage;
+        wasIndexed = page.canBeParsed();
+        return true;
+    }
+
+    private void registerRedirect(FetchResult response) {
+        log.debug("{}: перенаправление на {}", page.getUrl(), response.getUri());
+
+        if (wasIndexed) {
+            analyzeLemmasChanges(Collections.emptyMap());
+        }
+        nearDuplicates.remove(page);
+        if (page.getDuplicateOf() == null) {
+            releaseCopies();
+        }
+
+        page.setCode(301);
+        page.setContent("");
+        page.setOutLinks(null);
+        page.setEtag(null);
+        page.setLastModified(null);
+        page.setContentHash(null);
+        page.setSimHash(null);
+        page.setDuplicateOf(null);
+        page.setLastCrawled(LocalDateTime.now());
+        revisitPolicy.schedule(page, false);
+        savePage(page);
+    }
+
+    private boolean isSameContent(String contentHash) {
+        return page.canBeParsed() && contentHash != null && contentHash.equals(page.getContentHash());
+    }
+
+    // HTML сохраняется в исходном виде (в определённой при разборе кодировке), без повторной сериализации документа
+    private ParsedPage parse(FetchResult response) throws IOException {
+        var charset = response.getCharset();
+        var charsetName = charset == null ? null : charset.name(); // null - кодировка определяется по meta
+
+        var body = response.getBody();
+        var document = Jsoup.parse(new ByteArrayInputStream(body), charsetName, response.getUri().toString());
+        var html = new String(body, document.charset());
+
+        return ParsedPage.parse(document, html);
     }
 
     private Map<String, Lemma> getLemmasCache(Map<String, Integer> lemmas, Site site) {
@@ -396,102 +721,72 @@ public class PageAnalyzer extends RecursiveAction {
         }
     }
 
-    private List<Page> findNewPages() {
-        var paths = findNewPaths();
-
-        if (analyzeStopped()) {
-            return Collections.emptyList();
-        }
-
-        List<Page> newPages;
-        var site = page.getSite();
-
-        synchronized (site) {
-            var existingPaths = pageRepository.findBySiteAndPathIn(site, paths).stream()
-                    .map(Page::getPath)
-                    .map(this::getNormalizedPath)
-                    .distinct()
-                    .toList();
-
-            if (analyzeStopped()) {
-                return Collections.emptyList();
-            }
-
-            newPages = paths.stream()
-                    .filter(p -> !existingPaths.contains(p))
-                    .map(this::createPage)
-                    .toList();
-
-            if (analyzeStopped()) {
-                return Collections.emptyList();
-            }
-
-            pageRepository.saveAll(newPages);
-        }
-
+    private List<Page> findNewPages(List<String> paths) {
+        var pages = crawlFrontier.admit(crawl, paths, page.getDepth() + 1);
         updateSite();
 
-        return newPages;
+        return pages;
     }
 
-    // URL начинается с переданного корня и не содержит ссылок на внутренние элементы страницы (не содержит #)
-    private List<String> findNewPaths() {
-        var document = Jsoup.parse(page.getContent());
-        var regex = "(?i)^((" + page.getSite().getUrl() + ")|/)[^#]*$";
-        var elements = document.select("a[href~=" + regex + "]");
-
-        return elements.stream()
-                .map(element -> element.attr("href"))
-                .map(this::getNormalizedPath)
-                .distinct()
-                .toList();
-    }
-
-    private Page createPage(String path) {
-        var newPage = new Page();
-        newPage.setSite(page.getSite());
-        newPage.setPath(path);
-        newPage.setCode(102); // Processing («Идёт обработка»)
+    /**
+     * Удаляет страницу вместе с её индексами, уменьшая частоту лемм.
+     */
+    public void removePage() {
+        if (page.canBeParsed()) {
+            analyzeLemmasChanges(Collections.emptyMap());
+        }
+        nearDuplicates.remove(page);
+        if (page.getDuplicateOf() == null) {
+            releaseCopies();
+        }
 
-        return newPage;
+        synchronized (page.getSite()) {
+            pageRepository.delete(page);
+        }
     }
 
-    private void forkChildren(List<Page> newPages) {
-        for (var newPage : newPages) {
-            var task = applicationContext.getBean(PageAnalyzer.class);
-            task.setPage(newPage);
-
-            if (analyzeStopped()) {
-                return;
-            }
+    // Ссылки на страницы сайта сохраняются для расчёта авторитетности страниц (AuthorityRanker)
+    private void saveOutLinks(List<String> paths) {
+        var outLinks = LinkGraph.encodeLinks(paths, page.getPath());
+        if (Arrays.equals(outLinks, page.getOutLinks())) {
+            return;
+        }
 
-            task.fork();
-            children.add(task);
+        page.setOutLinks(outLinks);
+        try (var stage = indexingPipeline.enter(Stage.PERSIST)) {
+            pageRepository.updateOutLinks(page.getId(), outLinks);
         }
     }
 
-    private void joinChildren() {
-        for (var task : children) {
-            try {
-                task.join();
-            } catch (Exception e) {
-                registerUndefinedException(e);
+    // Ссылки страницы в каноническом виде, ссылки на другие сайты отбрасываются
+    private List<String> findNewPaths() {
+        try (var stage = indexingPipeline.enter(Stage.PARSE)) {
+            if (parsedPage == null) {
+                // Страница не изменилась и не загружалась заново - ссылки берутся из сохранённого содержимого
+                parsedPage = ParsedPage.parse(Jsoup.parse(page.getContent(), page.getUrl()), page.getContent());
             }
 
-            if (analyzeStopped()) {
-                return;
-            }
+            var siteUrl = page.getSite().getUrl();
+            var pageUrl = page.getUrl();
+
+            return parsedPage.getLinks().stream()
+                    .map(href -> urlCanonicalizer.canonicalize(siteUrl, pageUrl, href))
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
         }
     }
 
     private void savePage(Page page) {
-        synchronized (page) {
-            try {
-                pageRepository.save(page);
-            } catch (Exception e) {
-                var error = page.getPath().concat(": ").concat(e.getLocalizedMessage());
-                saveError(page.getSite(), error);
-                throw e;
+        try (var stage = indexingPipeline.enter(Stage.PERSIST)) {
+            synchronized (page) {
+                try {
+                    pageRepository.save(page);
+                } catch (Exception e) {
+                    var error = page.getPath().concat(": ").concat(e.getLocalizedMessage());
+                    saveError(page.getSite(), error);
+                    throw e;
+                }
             }
         }
     }
@@ -539,52 +834,132 @@ public class PageAnalyzer extends RecursiveAction {
         }
     }
 
+    /**
+     * Ошибка отдельной страницы прерывает индексацию сайта, только если это не обход
+     * или доля ошибок обхода превысила max-error-rate (проверяется в {@link #countResult()}).
+     */
     private void registerUndefinedException(Exception e) {
         log.error("{}: {}", page.getUrl(), e.getLocalizedMessage());
 
         page.setCode(500);
         savePage(page);
 
-        saveError(page.getSite(), e);
+        if (crawl == null) {
+            saveError(page.getSite(), e);
+        }
+        failed = true;
+    }
+
+    /**
+     * Временная ошибка (таймаут, обрыв соединения, перегрузка сервера): страница ставится в очередь
+     * повторных попыток с экспоненциально растущей паузой. Возвращает {@code false}, если попытки исчерпаны.
+     */
+    private boolean retryLater(String reason) {
+        if (crawl == null || attempt >= searchBot.getRetryAttempts() || isCancelled()) {
+            return false;
+        }
+
+        var delay = getRetryDelay(attempt);
+        log.info("{}: {}, повтор {} из {} через {} мс", page.getUrl(), reason, attempt + 1,
+                searchBot.getRetryAttempts(), delay);
+
+        crawl.retry(page, attempt + 1, delay);
+        retrying = true;
+        return true;
+    }
+
+    // retry-delay * 2^attempt со случайным разбросом до половины паузы, чтобы повторы не совпадали
+    private long getRetryDelay(int attempt) {
+        var delay = Math.min(searchBot.getRetryDelay() << Math.min(attempt, 20), searchBot.getMaxRetryDelay());
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private void countResult() {
+        if (!crawl.countPage(failed, searchBot.getMaxErrorRate(), searchBot.getErrorRateMinPages())) {
+            return;
+        }
+
+        var site = page.getSite();
+        synchronized (site) {
+            if (site.indexingFailed()) {
+                return;
+            }
+
+            var error = String.format("Доля страниц с ошибками загрузки превысила %.0f%%",
+                    searchBot.getMaxErrorRate() * 100);
+            log.error("{} - {}", site.getUrl(), error);
+
+            site.setLastError(error);
+            site.setStatus(IndexingStatus.FAILED);
+            site.setStatusTime(LocalDateTime.now());
+            siteRepository.save(site);
+        }
+    }
+
+    private void registerNotModified(FetchResult response) {
+        log.debug("{}: страница не изменилась", page.getUrl());
+        notModified = true;
+
+        if (!response.isNotModified()) {
+            page.setCode(response.getStatusCode());
+        }
+        if (response.header("ETag") != null) {
+            page.setEtag(response.header("ETag"));
+        }
+        if (response.header("Last-Modified") != null) {
+            page.setLastModified(response.header("Last-Modified"));
+        }
+        page.setLastCrawled(LocalDateTime.now());
+        revisitPolicy.schedule(page, false);
+        savePage(page);
+
+        updateSite();
     }
 
-    private void registerHttpStatusException(HttpStatusException e) {
-        log.info("{}: {}", page.getUrl(), e.getLocalizedMessage());
+    private void registerHttpStatus(int statusCode) {
+        log.info("{}: HTTP {}", page.getUrl(), statusCode);
 
-        var statusCode = e.getStatusCode();
         page.setCode(statusCode);
+        page.setContent("");
+        page.setOutLinks(null);
+        revisitPolicy.schedule(page, false);
         savePage(page);
 
         updateSite(page.getSite());
     }
 
-    private void registerMimeTypeException(UnsupportedMimeTypeException e) {
-        log.info("{}: {}", page.getUrl(), e.getLocalizedMessage());
+    private void registerMimeType(String contentType) {
+        log.info("{}: неподдерживаемый тип содержимого {}", page.getUrl(), contentType);
 
         page.setCode(415);
+        page.setContent("");
+        page.setOutLinks(null);
+        revisitPolicy.schedule(page, false);
         savePage(page);
 
         updateSite(page.getSite());
     }
 
-    private boolean analyzeStopped() {
-        var stopped = isCancelled() || page.getSite().indexingFailed();
-
-        if (stopped) {
-            cancelChildrenTasks();
-            children.forEach(ForkJoinTask::quietlyJoin);
+    // Оценка по длине тела или содержимого; освобождается по завершении обработки страницы обхода.
+    // Отдельная страница (indexPage) не учитывается: бюджет ограничивает только диспетчеры обходов
+    private void reserveMemory(long length) {
+        if (crawl == null) {
+            return;
         }
 
-        return stopped;
+        var bytes = length * MEMORY_FACTOR;
+        memoryBudget.reserve(bytes);
+        reservedBytes += bytes;
     }
 
-    private boolean cancelChildrenTasks(boolean mayInterruptIfRunning) {
-        return children.stream()
-                .filter(task -> !task.isDone())
-                .allMatch(task -> task.cancel(mayInterruptIfRunning));
+    private void releaseMemory() {
+        if (reservedBytes > 0) {
+            memoryBudget.release(reservedBytes);
+            reservedBytes = 0;
+        }
     }
 
-    private boolean cancelChildrenTasks() {
-        return cancelChildrenTasks(true);
+    private boolean analyzeStopped() {
+        return isCancelled() || page.getSite().indexingFailed();
     }
 }
\ No newline at end of file
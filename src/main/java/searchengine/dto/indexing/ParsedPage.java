@@ -0,0 +1,121 @@
+package searchengine.dto.indexing;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Результат однократного разбора страницы: текст для лемматизации, ссылки и заголовок
+ * собираются за один обход дерева документа.
+ */
+@Getter
+public class ParsedPage {
+
+    private final String html;
+    private final String title;
+    private final String text;
+    private final List<String> links; // Значения href без фильтрации
+    private final List<String> blocks; // Текст по блочным элементам, для поиска повторяющихся блоков шаблона
+    private final String canonical; // href из <link rel="canonical"> или null
+
+    private ParsedPage(String html, Collector collector) {
+        collector.closeBlock();
+        this.html = html;
+        this.title = collector.title;
+        this.text = collector.text.toString().strip();
+        this.links = collector.links;
+        this.blocks = collector.blocks;
+        this.canonical = collector.canonical;
+    }
+
+    /**
+     * @param html исходный HTML, который будет сохранён в содержимое страницы
+     */
+    public static ParsedPage parse(@NonNull Document document, @NonNull String html) {
+        var collector = new Collector();
+        NodeTraversor.traverse(collector, document);
+
+        return new ParsedPage(html, collector);
+    }
+
+    // Текст собирается так же, как Element.text(): пробельные символы схлопываются, блоки разделяются пробелом
+    private static class Collector implements NodeVisitor {
+        private final StringBuilder text = new StringBuilder();
+        private final List<String> links = new ArrayList<>();
+        private final List<String> blocks = new ArrayList<>();
+        private int blockStart = 0;
+        private String title = "";
+        private String canonical = null;
+
+        @Override
+        public void head(Node node, int depth) {
+            if (node instanceof TextNode textNode) {
+                appendNormalized(textNode.getWholeText());
+            } else if (node instanceof Element element) {
+                var name = element.normalName();
+
+                if (name.equals("a") && element.hasAttr("href")) {
+                    links.add(element.attr("href"));
+                } else if (name.equals("title") && title.isEmpty()) {
+                    title = element.text();
+                } else if (name.equals("link") && canonical == null
+                        && element.attr("rel").equalsIgnoreCase("canonical") && element.hasAttr("href")) {
+                    canonical = element.attr("href");
+                }
+
+                if (element.isBlock() || name.equals("br")) {
+                    appendSpace();
+                }
+            }
+        }
+
+        @Override
+        public void tail(Node node, int depth) {
+            if (node instanceof Element element && element.isBlock()) {
+                appendSpace();
+            }
+        }
+
+        private void appendNormalized(String value) {
+            var lastWasSpace = text.isEmpty() || text.charAt(text.length() - 1) == ' ';
+
+            for (int i = 0; i < value.length(); i++) {
+                var c = value.charAt(i);
+                if (Character.isWhitespace(c) || c == '\u00a0') {
+                    if (!lastWasSpace) {
+                        text.append(' ');
+                        lastWasSpace = true;
+                    }
+                } else {
+                    text.append(c);
+                    lastWasSpace = false;
+                }
+            }
+        }
+
+        private void appendSpace() {
+            if (!text.isEmpty() && text.charAt(text.length() - 1) != ' ') {
+                text.append(' ');
+            }
+            closeBlock();
+        }
+
+        private void closeBlock() {
+            if (text.length() > blockStart) {
+                var block = text.substring(blockStart).strip();
+                if (!block.isEmpty()) {
+                    blocks.add(block);
+                }
+                blockStart = text.length();
+            }
+        }
+    }
+}
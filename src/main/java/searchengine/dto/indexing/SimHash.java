@@ -0,0 +1,93 @@
+package searchengine.dto.indexing;
+
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * 64-битный SimHash текста по шинглам из трёх слов. У почти одинаковых текстов
+ * отпечатки отличаются в небольшом числе бит.
+ */
+public final class SimHash {
+
+    public static final int MIN_WORDS = 20; // Для более коротких текстов отпечаток не вычисляется
+
+    private static final int SHINGLE_SIZE = 3;
+
+    private SimHash() {
+    }
+
+    /**
+     * Возвращает отпечаток текста или {@code null}, если текст слишком короткий.
+     */
+    public static Long compute(@NonNull String text) {
+        var words = splitWords(text);
+        if (words.size() < MIN_WORDS) {
+            return null;
+        }
+
+        var weights = new int[64];
+        for (int i = 0; i + SHINGLE_SIZE <= words.size(); i++) {
+            var hash = hash(words, i);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1) == 1 ? 1 : -1;
+            }
+        }
+
+        var simHash = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+
+        return simHash;
+    }
+
+    public static int distance(long first, long second) {
+        return Long.bitCount(first ^ second);
+    }
+
+    private static ArrayList<String> splitWords(String text) {
+        var words = new ArrayList<String>();
+        var word = new StringBuilder();
+
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (!word.isEmpty()) {
+                words.add(word.toString().toLowerCase(Locale.ROOT));
+                word.setLength(0);
+            }
+        }
+        if (!word.isEmpty()) {
+            words.add(word.toString().toLowerCase(Locale.ROOT));
+        }
+
+        return words;
+    }
+
+    // 64-битный FNV-1a шингла с финальным перемешиванием
+    private static long hash(ArrayList<String> words, int from) {
+        var hash = 0xcbf29ce484222325L;
+        for (int i = from; i < from + SHINGLE_SIZE; i++) {
+            for (var b : words.get(i).getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            hash ^= ' ';
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+}
@@ -0,0 +1,11 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+
+@Data
+public class StageStatistics {
+    private String name;
+    private int parallelism;
+    private int active;
+    private int queued;
+}
@@ -0,0 +1,35 @@
+package searchengine.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+
+import java.time.LocalDateTime;
+
+/**
+ * Аренда обхода сайта узлом при совместной индексации несколькими экземплярами приложения.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "crawl_leases")
+public class CrawlLease {
+
+    // Адрес сайта из конфигурации: строка сайта в sites удаляется и создаётся заново при полной переиндексации
+    @Id
+    @Column(columnDefinition = "VARCHAR(255)", nullable = false)
+    @NonNull
+    private String url;
+
+    // Узел, обходящий сайт; null - аренда свободна
+    @Column(columnDefinition = "VARCHAR(255)")
+    private String owner;
+
+    @Column(columnDefinition = "DATETIME")
+    private LocalDateTime expires;
+
+    // Остановку запросил другой узел; владелец останавливает обход при продлении аренды
+    @Column(name = "stop_requested", nullable = false)
+    private boolean stopRequested;
+}
@@ -8,10 +8,13 @@ import lombok.NonNull;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
+import java.time.LocalDateTime;
+
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "pages", indexes = {@Index(columnList = "path")})
+@Table(name = "pages", indexes = {@Index(columnList = "path"), @Index(columnList = "site_id, next_visit"),
+        @Index(columnList = "duplicate_of")})
 public class Page {
 
     @Id
@@ -35,6 +38,44 @@ public class Page {
     @NonNull
     private String content = "";
 
+    // Валидаторы для условных запросов при повторной индексации
+    @Column(name = "etag")
+    private String etag;
+
+    @Column(name = "last_modified")
+    private String lastModified;
+
+    @Column(name = "content_hash", columnDefinition = "CHAR(64)")
+    private String contentHash;
+
+    @Column(name = "last_crawled", columnDefinition = "DATETIME")
+    private LocalDateTime lastCrawled;
+
+    // Число переходов по ссылкам от главной страницы, на которых страница была найдена
+    @Column(name = "depth")
+    private int depth;
+
+    // SimHash текста и страница, почти полной копией которой является эта (копии не индексируются)
+    @Column(name = "sim_hash")
+    private Long simHash;
+
+    @Column(name = "duplicate_of")
+    private Integer duplicateOf;
+
+    // Интервал повторного посещения в минутах, подстраиваемый под частоту изменений, и время следующего посещения
+    @Column(name = "revisit_interval")
+    private Integer revisitInterval;
+
+    @Column(name = "next_visit", columnDefinition = "DATETIME")
+    private LocalDateTime nextVisit;
+
+    // Ссылки на страницы сайта (отпечатки путей по 8 байт) и авторитетность по графу ссылок (в среднем 1)
+    @Column(name = "out_links", columnDefinition = "MEDIUMBLOB")
+    private byte[] outLinks;
+
+    @Column(name = "authority")
+    private Float authority;
+
     public String getUrl() {
         var rootPath = site.getUrl();
         var needSlash = !rootPath.endsWith("/");
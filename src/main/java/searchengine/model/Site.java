@@ -37,7 +37,19 @@ public class Site {
     @NonNull
     private String name;
 
+    // Начало текущего (или последнего) обхода: страницы, не посещённые с этого момента, удаляются по его окончании
+    @Column(name = "crawl_started", columnDefinition = "DATETIME")
+    private LocalDateTime crawlStarted;
+
+    // Время последней успешной индексации. Пока оно задано, сайт доступен для поиска и во время переиндексации
+    @Column(name = "indexed_time", columnDefinition = "DATETIME")
+    private LocalDateTime indexedTime;
+
     public boolean indexingFailed() {
         return status == IndexingStatus.FAILED;
     }
+
+    public boolean isSearchable() {
+        return status != IndexingStatus.INDEXING || indexedTime != null;
+    }
 }
@@ -0,0 +1,50 @@
+package searchengine.repository;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.CrawlLease;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CrawlLeaseRepository extends CrudRepository<CrawlLease, String> {
+
+    // Только вставка: save() выполнил бы merge и затёр строку, созданную другим узлом между проверкой и записью
+    @Modifying
+    @Transactional
+    @Query(value = "insert ignore into crawl_leases (url, stop_requested) values (:url, false)", nativeQuery = true)
+    int create(@Param("url") String url);
+
+    // Свободную или просроченную аренду получает только один узел: условие проверяется тем же запросом
+    @Modifying
+    @Transactional
+    @Query("update CrawlLease l set l.owner = :owner, l.expires = :expires, l.stopRequested = false "
+            + "where l.url = :url and (l.owner is null or l.expires < :now)")
+    int acquire(@Param("url") String url, @Param("owner") String owner, @Param("expires") LocalDateTime expires,
+                @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("update CrawlLease l set l.expires = :expires where l.url = :url and l.owner = :owner")
+    int renew(@Param("url") String url, @Param("owner") String owner, @Param("expires") LocalDateTime expires);
+
+    @Modifying
+    @Transactional
+    @Query("update CrawlLease l set l.owner = null, l.expires = null, l.stopRequested = false "
+            + "where l.url = :url and l.owner = :owner")
+    int release(@Param("url") String url, @Param("owner") String owner);
+
+    @Modifying
+    @Transactional
+    @Query("update CrawlLease l set l.stopRequested = true "
+            + "where l.url = :url and l.owner <> :owner and l.expires >= :now")
+    int requestStop(@Param("url") String url, @Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    @Query("select l.url from CrawlLease l where l.owner <> :owner and l.expires >= :now")
+    List<String> findUrlsLeasedByOthers(@Param("owner") String owner, @Param("now") LocalDateTime now);
+}
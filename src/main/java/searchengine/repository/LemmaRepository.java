@@ -1,7 +1,11 @@
 package searchengine.repository;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Lemma;
 import searchengine.model.Site;
 
@@ -13,4 +17,9 @@ public interface LemmaRepository extends CrudRepository<Lemma, Integer> {
     List<Lemma> findBySiteAndLemmaIn(Site site, Iterable<String> lemma);
     List<Lemma> findBySiteInAndLemmaIn(Iterable<Site> site, Iterable<String> lemma);
 
+    // Индексы лемм удаляются каскадно внешним ключом
+    @Modifying
+    @Transactional
+    @Query("delete from Lemma l where l.site = :site")
+    void deleteBySite(@Param("site") Site site);
 }
@@ -0,0 +1,9 @@
+package searchengine.repository;
+
+/**
+ * Проекция страницы с SimHash-отпечатком текста.
+ */
+public interface PageFingerprint {
+    int getId();
+    long getSimHash();
+}
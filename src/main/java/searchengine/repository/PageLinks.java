@@ -0,0 +1,10 @@
+package searchengine.repository;
+
+/**
+ * Проекция страницы с её ссылками для построения графа ссылок сайта.
+ */
+public interface PageLinks {
+    int getId();
+    String getPath();
+    byte[] getOutLinks();
+}
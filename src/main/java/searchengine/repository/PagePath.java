@@ -0,0 +1,13 @@
+package searchengine.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Проекция страницы без содержимого для заполнения кешей обхода.
+ */
+public interface PagePath {
+    int getId();
+    String getPath();
+    LocalDateTime getLastCrawled();
+    int getDepth();
+}
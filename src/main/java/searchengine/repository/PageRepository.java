@@ -1,10 +1,16 @@
 package searchengine.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Page;
 import searchengine.model.Site;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -12,4 +18,63 @@ public interface PageRepository extends CrudRepository<Page, Integer> {
     List<Page> findBySiteIn(Iterable<Site> site);
     Page findBySiteAndPath(Site site, String path);
     List<Page> findBySiteAndPathIn(Site site, Iterable<String> paths);
+    List<PagePath> findPathsBySite(Site site);
+    List<PageLinks> findLinksBySite(Site site);
+    List<Page> findBySiteAndCode(Site site, int code, Pageable pageable);
+
+    @Query("select p.id from Page p where p.site = :site and (p.lastCrawled is null or p.lastCrawled < :time)")
+    List<Integer> findIdsNotCrawledSince(@Param("site") Site site, @Param("time") LocalDateTime time);
+
+    @Modifying
+    @Transactional
+    @Query("update Page p set p.etag = :etag, p.lastModified = :lastModified, p.contentHash = :contentHash, "
+            + "p.lastCrawled = :lastCrawled, p.simHash = :simHash, p.duplicateOf = :duplicateOf, "
+            + "p.revisitInterval = :revisitInterval, p.nextVisit = :nextVisit where p.id = :id")
+    void updateCrawlState(@Param("id") int id, @Param("etag") String etag,
+                          @Param("lastModified") String lastModified, @Param("contentHash") String contentHash,
+                          @Param("lastCrawled") LocalDateTime lastCrawled, @Param("simHash") Long simHash,
+                          @Param("duplicateOf") Integer duplicateOf, @Param("revisitInterval") Integer revisitInterval,
+                          @Param("nextVisit") LocalDateTime nextVisit);
+
+    // Страницы без времени следующего посещения (проиндексированные до появления повторного обхода) - первыми
+    @Query("select p.id as id, p.path as path, p.lastCrawled as lastCrawled, p.depth as depth from Page p "
+            + "where p.site = :site and (p.nextVisit is null or p.nextVisit <= :time) order by p.nextVisit")
+    List<PagePath> findDueForRevisit(@Param("site") Site site, @Param("time") LocalDateTime time, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("update Page p set p.outLinks = :outLinks where p.id = :id")
+    void updateOutLinks(@Param("id") int id, @Param("outLinks") byte[] outLinks);
+
+    @Modifying
+    @Transactional
+    @Query("update Page p set p.authority = :authority where p.id in :ids")
+    void updateAuthority(@Param("ids") List<Integer> ids, @Param("authority") float authority);
+
+    // Страницы с сохранённым содержимым, которые индексируются (не копии других страниц)
+    @Query("select p.id from Page p where p.site = :site and p.content <> '' and p.duplicateOf is null order by p.id")
+    List<Integer> findIndexableIds(@Param("site") Site site);
+
+    @Modifying
+    @Transactional
+    @Query("update Page p set p.nextVisit = :time where p.id in :ids")
+    void updateNextVisit(@Param("ids") List<Integer> ids, @Param("time") LocalDateTime time);
+
+    @Query("select p.id from Page p where p.duplicateOf = :id")
+    List<Integer> findIdsByDuplicateOf(@Param("id") int id);
+
+    // Копии снова загружаются целиком (без валидаторов и хеша содержимого) и проверяются заново
+    @Modifying
+    @Transactional
+    @Query("update Page p set p.duplicateOf = null, p.etag = null, p.lastModified = null, p.contentHash = null, "
+            + "p.nextVisit = :time where p.duplicateOf = :id")
+    void releaseCopies(@Param("id") int id, @Param("time") LocalDateTime time);
+
+    @Query("select p.id from Page p where p.site = :site and p.path = :path "
+            + "and (p.duplicateOf is null or p.duplicateOf <> :pageId)")
+    Integer findOriginalId(@Param("site") Site site, @Param("path") String path, @Param("pageId") int pageId);
+
+    @Query("select p.id as id, p.simHash as simHash from Page p "
+            + "where p.site = :site and p.simHash is not null and p.duplicateOf is null")
+    List<PageFingerprint> findFingerprintsBySite(@Param("site") Site site);
 }
@@ -0,0 +1,52 @@
+package searchengine.services;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import searchengine.services.crawler.SiteCrawl;
+
+import java.time.LocalDateTime;
+
+/**
+ * Индексация одного сайта. Задачи разных сайтов запускаются и останавливаются независимо.
+ */
+@Getter
+public class IndexingJob {
+
+    private final SiteCrawl crawl;
+    private final LocalDateTime started = LocalDateTime.now();
+    private volatile LocalDateTime finished;
+    private volatile boolean cancelling = false;
+    @Getter(AccessLevel.NONE)
+    private volatile long cancelRequested; // System.nanoTime() запроса остановки
+    private volatile Long stopLatency; // Мс от запроса остановки до завершения обхода
+
+    public IndexingJob(@NonNull SiteCrawl crawl) {
+        this.crawl = crawl;
+    }
+
+    public String getUrl() {
+        return crawl.getSite().getUrl();
+    }
+
+    public boolean isDone() {
+        return finished != null;
+    }
+
+    void cancel() {
+        cancelRequested = System.nanoTime();
+        cancelling = true;
+        crawl.cancel();
+    }
+
+    /**
+     * Обход остановлен: все задачи страниц завершились.
+     */
+    void stopped() {
+        stopLatency = (System.nanoTime() - cancelRequested) / 1_000_000;
+    }
+
+    void finish() {
+        finished = LocalDateTime.now();
+    }
+}
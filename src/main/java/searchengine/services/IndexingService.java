@@ -1,5 +1,6 @@
 package searchengine.services;
 
+import searchengine.dto.indexing.IndexingJobsResponse;
 import searchengine.dto.indexing.IndexingResponse;
 
 public interface IndexingService {
@@ -8,4 +9,14 @@ public interface IndexingService {
     IndexingResponse stopIndexing();
 
     IndexingResponse indexPage(String url);
+
+    IndexingResponse startSiteIndexing(String url);
+
+    IndexingResponse stopSiteIndexing(String url);
+
+    IndexingResponse indexNewSites();
+
+    IndexingResponse rebuildIndex();
+
+    IndexingJobsResponse getJobs();
 }
@@ -3,28 +3,36 @@ package searchengine.services;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
+import searchengine.dto.indexing.IndexingJobItem;
+import searchengine.dto.indexing.IndexingJobsResponse;
 import searchengine.dto.indexing.IndexingResponse;
 import searchengine.dto.indexing.PageAnalyzer;
 import searchengine.model.*;
-import searchengine.repository.IndexRepository;
-import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
+import searchengine.services.crawler.BoilerplateFilter;
+import searchengine.services.crawler.CrawlEngine;
+import searchengine.services.crawler.CrawlLeases;
+import searchengine.services.crawler.IndexRebuilder;
+import searchengine.services.crawler.NearDuplicates;
+import searchengine.services.crawler.RevisitScheduler;
+import searchengine.services.crawler.UrlCanonicalizer;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.time.ZoneOffset;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.ForkJoinTask;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
-import static java.util.concurrent.ForkJoinPool.commonPool;
-
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -33,127 +41,582 @@ public class IndexingServiceImpl implements IndexingService {
     private final SitesList sites;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
-    private final IndexRepository indexRepository;
     private final ApplicationContext applicationContext;
+    private final CrawlEngine crawlEngine;
+    private final NearDuplicates nearDuplicates;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final RevisitScheduler revisitScheduler;
+    private final BoilerplateFilter boilerplateFilter;
+    private final CrawlLeases crawlLeases;
+    private final IndexRebuilder indexRebuilder;
 
-    private static final List<PageAnalyzer> indexingTasks = new ArrayList<>();
-    private static boolean indexingCancelling = false;
+    private final Map<String, IndexingJob> jobs = new ConcurrentHashMap<>(); // Последняя задача каждого сайта
 
     @Override
     public synchronized IndexingResponse startIndexing() {
-        var siteSettings = sites.getSites();
-        var urls = siteSettings.stream().map(Site::getUrl).toList();
-        var currentSites = siteRepository.findByUrlIn(urls);
-
-        if (!indexingTasks.isEmpty()
-                && currentSites.stream().anyMatch(site -> site.getStatus() == IndexingStatus.INDEXING)) {
-            var error = indexingCancelling ? "Предыдущая индексация ещё останавливается"
+        var runningJobs = getRunningJobs();
+        if (!runningJobs.isEmpty()) {
+            var error = runningJobs.stream().allMatch(IndexingJob::isCancelling)
+                    ? "Предыдущая индексация ещё останавливается"
                     : "Индексация уже запущена";
 
             return IndexingResponse.builder().result(false).error(error).build();
         }
 
-        indexingCancelling = false;
-        var indexingSites = new ArrayList<searchengine.model.Site>();
-        var rootPages = new ArrayList<Page>();
+        var urls = sites.getSites().stream().map(Site::getUrl).toList();
+        if (!getSitesIndexedByOthers(urls).isEmpty()) {
+            return IndexingResponse.builder().result(false).error("Индексация уже запущена на другом узле").build();
+        }
 
-        for (Site site : sites.getSites()) {
-            var newSite = createSite(site);
-            indexingSites.add(newSite);
+        log.info("Запуск полной индексации");
+        if (startSites(sites.getSites()) == 0) {
+            return IndexingResponse.builder().result(false).error("Сайты обрабатываются другими узлами").build();
+        }
 
-            var page = createPage(newSite, "/");
-            rootPages.add(page);
+        return IndexingResponse.builder().result(true).build();
+    }
 
+    @Override
+    public synchronized IndexingResponse startSiteIndexing(@NonNull String url) {
+        var configSite = findConfigSite(url.strip());
+        if (configSite == null) {
+            return IndexingResponse.builder().result(false).error("Сайт не указан в конфигурационном файле").build();
+        }
 
-            var task = applicationContext.getBean(PageAnalyzer.class);
-            task.setPage(page);
+        var job = jobs.get(configSite.getUrl());
+        if (job != null && !job.isDone()) {
+            var error = job.isCancelling() ? "Индексация сайта ещё останавливается" : "Индексация сайта уже запущена";
+            return IndexingResponse.builder().result(false).error(error).build();
+        }
+        if (!getSitesIndexedByOthers(List.of(configSite.getUrl())).isEmpty()) {
+            var error = "Индексация сайта уже запущена на другом узле";
+            return IndexingResponse.builder().result(false).error(error).build();
+        }
 
-            indexingTasks.add(task);
+        if (startSites(List.of(configSite)) == 0) {
+            return IndexingResponse.builder().result(false).error("Сайт обрабатывается другим узлом").build();
         }
 
-        getStartIndexingThread(currentSites, indexingSites, rootPages).start();
+        return IndexingResponse.builder().result(true).build();
+    }
+
+    /**
+     * Индексирует сайты, добавленные в конфигурационный файл после прошлой индексации.
+     */
+    @Override
+    public synchronized IndexingResponse indexNewSites() {
+        var urls = sites.getSites().stream().map(Site::getUrl).toList();
+        var knownUrls = siteRepository.findByUrlIn(urls).stream()
+                .map(searchengine.model.Site::getUrl)
+                .collect(Collectors.toSet());
+
+        var newSites = sites.getSites().stream()
+                .filter(site -> !knownUrls.contains(site.getUrl()))
+                .filter(site -> !jobs.containsKey(site.getUrl()) || jobs.get(site.getUrl()).isDone())
+                .toList();
+        if (newSites.isEmpty()) {
+            return IndexingResponse.builder().result(false).error("Новых сайтов для индексации нет").build();
+        }
+
+        log.info("Запуск индексации {} новых сайтов", newSites.size());
+        if (startSites(newSites) == 0) {
+            return IndexingResponse.builder().result(false).error("Сайты обрабатываются другими узлами").build();
+        }
 
         return IndexingResponse.builder().result(true).build();
     }
 
-    private Thread getStartIndexingThread(List<searchengine.model.Site> currentSites,
-                                          ArrayList<searchengine.model.Site> indexingSites, ArrayList<Page> rootPages) {
+    /**
+     * Запускает индексацию сайтов и возвращает их число. При совместной индексации сайты, аренду которых
+     * держит другой узел, пропускаются, а сайты сверх max-sites только подготавливаются: их обход
+     * продолжит узел, у которого есть свободное место ({@link #heartbeat()}).
+     */
+    private int startSites(List<Site> configSites) {
+        // Повторный обход этого узла держит аренды сайтов: он останавливается до их получения
+        if (crawlLeases.isEnabled()) {
+            revisitScheduler.suspend();
+        }
+        try {
+            return startLeasedSites(configSites);
+        } finally {
+            if (crawlLeases.isEnabled()) {
+                revisitScheduler.resume();
+            }
+        }
+    }
+
+    private int startLeasedSites(List<Site> configSites) {
+        var urls = configSites.stream().map(Site::getUrl).toList();
+        var currentSites = siteRepository.findByUrlIn(urls);
+        var now = LocalDateTime.now();
+        var started = 0;
+
+        for (Site site : configSites) {
+            if (!crawlLeases.acquire(site.getUrl())) {
+                log.info("{}: сайт обрабатывается другим узлом", site.getUrl());
+                continue;
+            }
+
+            var currentSite = findSite(currentSites, site.getUrl());
+
+            searchengine.model.Site indexingSite;
+            searchengine.model.Site deletingSite = null;
+            Page page = null;
+            if (currentSite != null && sites.isIncremental()) {
+                // Данные сайта остаются доступными для поиска, пока обход их обновляет
+                indexingSite = currentSite;
+                indexingSite.setStatus(IndexingStatus.INDEXING);
+                indexingSite.setStatusTime(now);
+                indexingSite.setLastError(null);
+                page = pageRepository.findBySiteAndPath(indexingSite, "/");
+            } else {
+                deletingSite = currentSite;
+                indexingSite = createSite(site);
+            }
+            indexingSite.setCrawlStarted(now);
+
+            if (page == null) {
+                page = createPage(indexingSite, "/");
+            } else {
+                page.setSite(indexingSite);
+            }
+
+            var job = new IndexingJob(crawlEngine.createCrawl(page));
+            var crawlHere = hasFreeSiteSlot();
+            if (crawlHere) {
+                jobs.put(site.getUrl(), job);
+            }
+            getStartIndexingThread(job, deletingSite, page, crawlHere).start();
+            started++;
+        }
+
+        return started;
+    }
+
+    /**
+     * @param crawl {@code false} - сайт только подготавливается к обходу, который выполнит свободный узел
+     */
+    private Thread getStartIndexingThread(IndexingJob job, searchengine.model.Site deletingSite, Page rootPage,
+                                          boolean crawl) {
         return new Thread(() -> {
-            log.info("Запуск полной индексации");
+            var site = rootPage.getSite();
+            log.info("Запуск индексации {}", site.getUrl());
             var start = System.currentTimeMillis();
 
-            siteRepository.deleteAll(currentSites);
-            siteRepository.saveAll(indexingSites);
-            pageRepository.saveAll(rootPages);
+            try {
+                // Повторный обход не должен обновлять сайт одновременно с индексацией
+                revisitScheduler.suspend();
+                try {
+                    if (deletingSite != null) {
+                        siteRepository.delete(deletingSite);
+                        nearDuplicates.forget(deletingSite);
+                        boilerplateFilter.forget(deletingSite);
+                    }
+                    siteRepository.save(site);
+                } finally {
+                    revisitScheduler.resume();
+                }
+                pageRepository.save(rootPage);
 
-            indexingTasks.forEach(task -> commonPool().execute(task));
-            indexingTasks.forEach(ForkJoinTask::quietlyJoin);
+                if (crawl) {
+                    crawlEngine.start(job.getCrawl());
+                    job.getCrawl().awaitCompletion();
+                }
+            } catch (Exception e) {
+                log.error("{}: {}", site.getUrl(), e.getLocalizedMessage());
+            } finally {
+                job.finish();
+                // Аренду остановленного обхода освобождает остановка, после записи статуса
+                if (!job.isCancelling()) {
+                    crawlLeases.release(site.getUrl());
+                }
+            }
 
-            if (indexingCancelling) {
-                log.info("Полная индексации отменена пользователем");
+            if (!crawl) {
+                log.info("{}: сайт ожидает обхода свободным узлом", site.getUrl());
+            } else if (job.isCancelling()) {
+                log.info("Индексация {} отменена пользователем", site.getUrl());
             } else {
-                log.info("Полная индексация выполнена за {} мс.", System.currentTimeMillis() - start);
+                log.info("Индексация {} выполнена за {} мс.", site.getUrl(), System.currentTimeMillis() - start);
             }
         });
     }
 
+    /**
+     * Перестраивает леммы и индексы сайтов по сохранённому содержимому страниц, без загрузки страниц.
+     * Поиск по сайту во время перестроения возвращает неполные результаты.
+     */
     @Override
-    public synchronized IndexingResponse stopIndexing() {
+    public synchronized IndexingResponse rebuildIndex() {
+        if (!getRunningJobs().isEmpty()) {
+            return IndexingResponse.builder().result(false).error("Индексация уже запущена").build();
+        }
+
         var urls = sites.getSites().stream().map(Site::getUrl).toList();
-        var indexingSites = siteRepository.findByStatusAndUrlIn(IndexingStatus.INDEXING, urls);
+        if (!getSitesIndexedByOthers(urls).isEmpty()) {
+            return IndexingResponse.builder().result(false).error("Индексация уже запущена на другом узле").build();
+        }
 
-        if (indexingSites.isEmpty()) {
-            return IndexingResponse.builder().result(false).error("Индексация не запущена").build();
-        } else if (indexingCancelling) {
-            return IndexingResponse.builder().result(false).error("Индексация уже останавливается").build();
+        var storedSites = siteRepository.findByUrlIn(urls).stream()
+                .filter(site -> site.getStatus() != IndexingStatus.INDEXING)
+                .toList();
+        if (storedSites.isEmpty()) {
+            return IndexingResponse.builder().result(false).error("Нет проиндексированных сайтов").build();
         }
 
-        indexingCancelling = true;
-        getStopIndexingThread(indexingSites).start();
+        log.info("Запуск переиндексации сохранённых страниц");
+        var started = 0;
+        // Повторный обход не должен обновлять леммы сайта одновременно с перестроением
+        revisitScheduler.suspend();
+        try {
+            for (var site : storedSites) {
+                if (!crawlLeases.acquire(site.getUrl())) {
+                    log.info("{}: сайт обрабатывается другим узлом", site.getUrl());
+                    continue;
+                }
+
+                // Без отметки о начале обхода прерванное перестроение не возобновляется как обход при запуске
+                site.setStatus(IndexingStatus.INDEXING);
+                site.setStatusTime(LocalDateTime.now());
+                site.setLastError(null);
+                site.setCrawlStarted(null);
+                siteRepository.save(site);
+
+                var page = pageRepository.findBySiteAndPath(site, "/");
+                if (page == null) {
+                    page = createPage(site, "/");
+                } else {
+                    page.setSite(site);
+                }
+
+                var job = new IndexingJob(crawlEngine.createCrawl(page));
+                jobs.put(site.getUrl(), job);
+                getRebuildIndexThread(job).start();
+                started++;
+            }
+        } finally {
+            revisitScheduler.resume();
+        }
+
+        if (started == 0) {
+            return IndexingResponse.builder().result(false).error("Сайты обрабатываются другими узлами").build();
+        }
 
         return IndexingResponse.builder().result(true).build();
     }
 
-    private Thread getStopIndexingThread(List<searchengine.model.Site> indexingSites) {
+    private Thread getRebuildIndexThread(IndexingJob job) {
+        return new Thread(() -> {
+            var start = System.currentTimeMillis();
+
+            try {
+                indexRebuilder.rebuild(job.getCrawl());
+                job.getCrawl().awaitCompletion();
+            } catch (Exception e) {
+                log.error("{}: {}", job.getUrl(), e.getLocalizedMessage());
+            } finally {
+                job.finish();
+                if (!job.isCancelling()) {
+                    crawlLeases.release(job.getUrl());
+                }
+            }
+
+            log.info("Переиндексация {} завершена за {} мс.", job.getUrl(), System.currentTimeMillis() - start);
+        });
+    }
+
+    /**
+     * Возобновляет обход сайтов, индексация которых была прервана остановкой приложения.
+     * Сайты без отметки о начале обхода (индексация отдельной страницы) помечаются как FAILED.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void resumeIndexing() {
+        if (crawlLeases.isEnabled()) {
+            return; // Прерванные обходы продолжают узлы, получившие аренду сайта
+        }
+
+        var urls = sites.getSites().stream().map(Site::getUrl).toList();
+        var interruptedSites = siteRepository.findByStatusAndUrlIn(IndexingStatus.INDEXING, urls);
+        if (interruptedSites.isEmpty()) {
+            return;
+        }
+
+        var now = LocalDateTime.now();
+
+        for (var site : interruptedSites) {
+            if (!sites.isResume() || site.getCrawlStarted() == null) {
+                site.setStatus(IndexingStatus.FAILED);
+                site.setLastError("Индексация прервана остановкой приложения");
+                site.setStatusTime(now);
+                siteRepository.save(site);
+                continue;
+            }
+
+            resumeSite(site);
+        }
+    }
+
+    private void resumeSite(searchengine.model.Site site) {
+        var page = pageRepository.findBySiteAndPath(site, "/");
+        if (page == null) {
+            page = createPage(site, "/");
+            pageRepository.save(page);
+        } else {
+            page.setSite(site);
+        }
+
+        site.setStatusTime(LocalDateTime.now());
+        siteRepository.save(site);
+
+        var job = new IndexingJob(crawlEngine.createCrawl(page));
+        jobs.put(site.getUrl(), job);
+        getResumeIndexingThread(job).start();
+    }
+
+    /**
+     * При совместной индексации продлевает аренды узла, останавливает обходы, аренда которых перешла
+     * к другому узлу или остановку которых запросил другой узел, и берёт в обход сайт, который ждёт свободного узла
+     * или обход которого прервался на упавшем узле.
+     */
+    @Scheduled(initialDelayString = "${indexing-settings.cluster.heartbeat-interval:10000}",
+            fixedDelayString = "${indexing-settings.cluster.heartbeat-interval:10000}")
+    public synchronized void heartbeat() {
+        if (!crawlLeases.isEnabled()) {
+            return;
+        }
+
+        var lost = crawlLeases.renewHeld();
+        for (var job : getRunningJobs()) {
+            if (job.isCancelling()) {
+                continue;
+            }
+
+            if (lost.contains(job.getUrl())) {
+                log.warn("{}: обход остановлен, сайт обходит другой узел", job.getUrl());
+                job.cancel();
+            } else if (crawlLeases.isStopRequested(job.getUrl())) {
+                log.info("{}: остановка индексации запрошена другим узлом", job.getUrl());
+                getStopIndexingThread(job).start();
+            }
+        }
+
+        if (hasFreeSiteSlot()) {
+            claimSite();
+        }
+    }
+
+    // Не больше одного сайта за проверку, чтобы ожидающие сайты распределялись между узлами
+    private void claimSite() {
+        var urls = sites.getSites().stream().map(Site::getUrl).toList();
+
+        for (var site : siteRepository.findByStatusAndUrlIn(IndexingStatus.INDEXING, urls)) {
+            var job = jobs.get(site.getUrl());
+            if (site.getCrawlStarted() == null || (job != null && !job.isDone())
+                    || !crawlLeases.acquire(site.getUrl())) {
+                continue;
+            }
+
+            // Пока аренда была свободна, индексацию могли остановить или запустить заново
+            var current = siteRepository.findByUrl(site.getUrl());
+            if (current == null || current.getStatus() != IndexingStatus.INDEXING || current.getCrawlStarted() == null) {
+                crawlLeases.release(site.getUrl());
+                continue;
+            }
+
+            log.info("{}: обход продолжается на узле {}", current.getUrl(), crawlLeases.getNodeId());
+            resumeSite(current);
+            return;
+        }
+    }
+
+    private boolean hasFreeSiteSlot() {
+        var maxSites = sites.getCluster().getMaxSites();
+        return !crawlLeases.isEnabled() || maxSites <= 0 || getRunningJobs().size() < maxSites;
+    }
+
+    // Сайты, которые сейчас индексируют другие узлы
+    private List<String> getSitesIndexedByOthers(List<String> urls) {
+        var leased = crawlLeases.getLeasedByOthers();
+        if (leased.isEmpty()) {
+            return List.of();
+        }
+
+        return siteRepository.findByStatusAndUrlIn(IndexingStatus.INDEXING, urls).stream()
+                .map(searchengine.model.Site::getUrl)
+                .filter(leased::contains)
+                .toList();
+    }
+
+    private Thread getResumeIndexingThread(IndexingJob job) {
         return new Thread(() -> {
-            log.info("Запуск остановки полной индексации");
+            log.info("Возобновление прерванной индексации {}", job.getUrl());
             var start = System.currentTimeMillis();
 
-            if (!indexingTasks.isEmpty()) {
-                indexingTasks.stream()
-                        .filter(task -> !task.isDone())
-                        .forEach(task -> task.cancel(true));
+            try {
+                crawlEngine.resume(job.getCrawl());
+                job.getCrawl().awaitCompletion();
+            } catch (Exception e) {
+                log.error("{}: {}", job.getUrl(), e.getLocalizedMessage());
+            } finally {
+                job.finish();
+                if (!job.isCancelling()) {
+                    crawlLeases.release(job.getUrl());
+                }
+            }
+
+            log.info("Возобновлённая индексация {} завершена за {} мс.", job.getUrl(),
+                    System.currentTimeMillis() - start);
+        });
+    }
 
+    @Override
+    public synchronized IndexingResponse stopIndexing() {
+        var runningJobs = getRunningJobs();
+        var stoppedElsewhere = stopOtherNodes(sites.getSites().stream().map(Site::getUrl).toList());
 
-                indexingTasks.forEach(ForkJoinTask::quietlyJoin);
+        if (runningJobs.isEmpty() && stoppedElsewhere == 0) {
+            return IndexingResponse.builder().result(false).error("Индексация не запущена").build();
+        } else if (stoppedElsewhere == 0 && runningJobs.stream().allMatch(IndexingJob::isCancelling)) {
+            return IndexingResponse.builder().result(false).error("Индексация уже останавливается").build();
+        }
+
+        runningJobs.stream()
+                .filter(job -> !job.isCancelling())
+                .forEach(job -> getStopIndexingThread(job).start());
+
+        return IndexingResponse.builder().result(true).build();
+    }
+
+    @Override
+    public synchronized IndexingResponse stopSiteIndexing(@NonNull String url) {
+        var configSite = findConfigSite(url.strip());
+        var job = configSite == null ? null : jobs.get(configSite.getUrl());
+
+        if (job == null || job.isDone()) {
+            if (configSite != null && stopOtherNodes(List.of(configSite.getUrl())) > 0) {
+                return IndexingResponse.builder().result(true).build();
             }
+            return IndexingResponse.builder().result(false).error("Индексация сайта не запущена").build();
+        } else if (job.isCancelling()) {
+            return IndexingResponse.builder().result(false).error("Индексация сайта уже останавливается").build();
+        }
+
+        getStopIndexingThread(job).start();
 
-            var now = LocalDateTime.now();
-            for (var indexingSite : indexingSites) {
-                synchronized (indexingSite) {
-                    indexingSite.setStatus(IndexingStatus.FAILED);
-                    indexingSite.setLastError("Индексация остановлена пользователем");
-                    indexingSite.setStatusTime(now);
-                    siteRepository.save(indexingSite);
+        return IndexingResponse.builder().result(true).build();
+    }
+
+    /**
+     * При совместной индексации останавливает индексацию сайтов, которые не обходит этот узел,
+     * и возвращает их число. Узел-владелец аренды останавливает обход при её продлении;
+     * сайт без действующей аренды (ждёт свободного узла или его узел упал) помечается остановленным сразу.
+     */
+    private int stopOtherNodes(List<String> urls) {
+        if (!crawlLeases.isEnabled()) {
+            return 0;
+        }
+
+        var stopped = 0;
+        for (var site : siteRepository.findByStatusAndUrlIn(IndexingStatus.INDEXING, urls)) {
+            var job = jobs.get(site.getUrl());
+            if (job != null && !job.isDone()) {
+                continue;
+            }
+
+            if (crawlLeases.requestStop(site.getUrl())) {
+                log.info("{}: остановка индексации передана другому узлу", site.getUrl());
+                stopped++;
+                continue;
+            }
+
+            // Статус меняется под арендой, чтобы сайт в это время не взял в обход другой узел
+            if (!crawlLeases.acquire(site.getUrl())) {
+                continue;
+            }
+            try {
+                var current = siteRepository.findByUrl(site.getUrl());
+                if (current != null && current.getStatus() == IndexingStatus.INDEXING) {
+                    current.setStatus(IndexingStatus.FAILED);
+                    current.setLastError("Индексация остановлена пользователем");
+                    current.setStatusTime(LocalDateTime.now());
+                    siteRepository.save(current);
+                    stopped++;
                 }
+            } finally {
+                crawlLeases.release(site.getUrl());
             }
+        }
 
-            indexingTasks.clear();
+        return stopped;
+    }
+
+    private Thread getStopIndexingThread(IndexingJob job) {
+        job.cancel();
 
-            log.info("Полная индексация остановлена за {} мс.", System.currentTimeMillis() - start);
+        return new Thread(() -> {
+            log.info("Запуск остановки индексации {}", job.getUrl());
+
+            job.getCrawl().awaitCompletion();
+            job.stopped();
+
+            var indexingSite = job.getCrawl().getSite();
+            synchronized (indexingSite) {
+                indexingSite.setStatus(IndexingStatus.FAILED);
+                indexingSite.setLastError("Индексация остановлена пользователем");
+                indexingSite.setStatusTime(LocalDateTime.now());
+                siteRepository.save(indexingSite);
+            }
+            crawlLeases.release(job.getUrl());
+
+            log.info("Индексация {} остановлена за {} мс.", job.getUrl(), job.getStopLatency());
         });
     }
 
+    @Override
+    public IndexingJobsResponse getJobs() {
+        var items = jobs.values().stream()
+                .sorted(Comparator.comparing(IndexingJob::getStarted))
+                .map(this::getJobItem)
+                .toList();
+
+        var response = new IndexingJobsResponse();
+        response.setResult(true);
+        response.setJobs(items);
+        response.setNode(crawlLeases.isEnabled() ? crawlLeases.getNodeId() : null);
+        return response;
+    }
+
+    private IndexingJobItem getJobItem(IndexingJob job) {
+        var item = new IndexingJobItem();
+        item.setUrl(job.getUrl());
+        item.setName(job.getCrawl().getSite().getName());
+        item.setState(job.isDone() ? "finished" : job.isCancelling() ? "stopping" : "indexing");
+        item.setStartTime(toMillis(job.getStarted()));
+        item.setFinishTime(job.isDone() ? toMillis(job.getFinished()) : null);
+        item.setPages(job.getCrawl().getAdmittedPages().get());
+        item.setStopLatency(job.getStopLatency());
+
+        return item;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneOffset.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private List<IndexingJob> getRunningJobs() {
+        return jobs.values().stream().filter(job -> !job.isDone()).toList();
+    }
+
     @Override
     public synchronized IndexingResponse indexPage(@NonNull String url) {
         if (url.isBlank()) {
             return IndexingResponse.builder().result(false).error("Не передано значение url").build();
         }
 
-        url = url.toLowerCase();
+        url = url.strip();
         Site configSite = findConfigSite(url);
-        if (configSite == null) {
+        var path = configSite == null ? null : urlCanonicalizer.canonicalize(configSite.getUrl(), null, url);
+        if (path == null) {
             var error = "Данная страница находится за пределами сайтов, указанных в конфигурационном файле";
             return IndexingResponse.builder().result(false).error(error).build();
         }
@@ -162,9 +625,6 @@ public class IndexingServiceImpl implements IndexingService {
         var newSite = site == null;
 
         Page oldPage = null;
-        var path = url.substring(configSite.getUrl().length());
-        path = PageAnalyzer.getNormalizedPath(site, path);
-
         if (newSite) {
             site = createSite(configSite);
         } else {
@@ -177,32 +637,39 @@ public class IndexingServiceImpl implements IndexingService {
             return IndexingResponse.builder().result(true).build();
         }
 
-        var newPage = createPage(site, path);
-        getIndexPageThread(oldPage, newPage, newSite).start();
+        // Уже проиндексированная страница запрашивается условно и переиндексируется, только если изменилась
+        Page page;
+        if (oldPage != null) {
+            page = oldPage;
+            page.setSite(site);
+        } else {
+            page = createPage(site, path);
+        }
+        getIndexPageThread(page, newSite).start();
 
         return IndexingResponse.builder().result(true).build();
     }
 
-    private Thread getIndexPageThread(Page oldPage, @NonNull Page newPage, boolean newSite) {
+    private Thread getIndexPageThread(@NonNull Page page, boolean newSite) {
         return new Thread(() -> {
-            var url = newPage.getUrl();
+            var url = page.getUrl();
 
             log.info("Запуск индексации страницы {}", url);
             var start = System.currentTimeMillis();
 
-            if (oldPage != null) {
-                deleteLeLemmatizationInfo(oldPage);
+            if (page.getId() == 0) {
+                pageRepository.save(page);
+                markVisited(page);
             }
 
-            pageRepository.save(newPage);
-
             var pageAnalyzer = applicationContext.getBean(PageAnalyzer.class);
-            pageAnalyzer.setPage(newPage);
+            pageAnalyzer.setPage(page);
             pageAnalyzer.analyzePage();
 
             if (newSite) {
-                var site = newPage.getSite();
+                var site = page.getSite();
                 site.setStatus(IndexingStatus.INDEXED);
+                site.setIndexedTime(LocalDateTime.now());
                 siteRepository.save(site);
             }
 
@@ -229,11 +696,28 @@ public class IndexingServiceImpl implements IndexingService {
         return page;
     }
 
+    // Страница, добавленная во время обхода сайта, не должна повторно создаваться этим обходом
+    private void markVisited(Page page) {
+        var siteUrl = page.getSite().getUrl();
+        var job = jobs.get(siteUrl);
+        if (job != null && !job.isDone()) {
+            job.getCrawl().getVisited().seed(page.getPath(), page.getId(), true);
+        }
+    }
+
+    private searchengine.model.Site findSite(List<searchengine.model.Site> sites, @NonNull String url) {
+        return sites.stream()
+                .filter(site -> site.getUrl().equals(url))
+                .findFirst()
+                .orElse(null);
+    }
+
     private Site findConfigSite(@NonNull String url) {
         Site configSite = null;
 
+        url = url.toLowerCase();
         for (var site : sites.getSites()) {
-            var siteUrl = site.getUrl();
+            var siteUrl = site.getUrl().toLowerCase();
             if (url.startsWith(siteUrl)) {
                 configSite = site;
                 break;
@@ -242,26 +726,4 @@ public class IndexingServiceImpl implements IndexingService {
         return configSite;
     }
 
-
-    @Transactional
-    private void deleteLeLemmatizationInfo(Page page) {
-        synchronized (page.getSite()) {
-            var checkingLemmas = indexRepository.findByPage(page).stream()
-                    .map(Index::getLemma)
-                    .collect(Collectors.groupingBy(lemma -> lemma.getFrequency() > 1));
-
-            var deletingLemmas = checkingLemmas.getOrDefault(false, Collections.emptyList());
-
-            var changedLemmas = checkingLemmas.getOrDefault(true, Collections.emptyList());
-            for (var lemma : changedLemmas) {
-                var frequency = lemma.getFrequency() - 1;
-                lemma.setFrequency(frequency);
-            }
-
-            lemmaRepository.deleteAll(deletingLemmas);
-            lemmaRepository.saveAll(changedLemmas);
-            pageRepository.delete(page);
-        }
-    }
-
 }
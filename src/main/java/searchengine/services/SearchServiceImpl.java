@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
+import searchengine.config.SearchSettings;
 import searchengine.config.SitesList;
 import searchengine.dto.search.SearchData;
 import searchengine.dto.search.SearchResponse;
@@ -23,6 +24,7 @@ import java.util.stream.Collectors;
 public class SearchServiceImpl implements SearchService {
 
     private final SitesList sitesSettings;
+    private final SearchSettings searchSettings;
     private final ApplicationContext applicationContext;
     private final SiteRepository siteRepository;
     private final LemmaRepository lemmaRepository;
@@ -43,7 +45,7 @@ public class SearchServiceImpl implements SearchService {
         }
 
         Site site = siteRepository.findByUrl(siteUrl);
-        if (site == null || site.getStatus() == IndexingStatus.INDEXING) {
+        if (site == null || !site.isSearchable()) {
             return SearchResponse.builder().result(false).error("Индексация сайта ещё не завершена").build();
         }
 
@@ -65,7 +67,7 @@ public class SearchServiceImpl implements SearchService {
         }
 
         boolean indexingInProcess = sitesInDB.stream()
-                .anyMatch(site -> site.getStatus() == IndexingStatus.INDEXING);
+                .anyMatch(site -> !site.isSearchable());
         if (indexingInProcess) {
             return SearchResponse.builder().result(false).error("Индексация части сайтов ещё не завершена").build();
         }
@@ -94,6 +96,7 @@ public class SearchServiceImpl implements SearchService {
         long start = System.currentTimeMillis();
 
         Map<Page, Float> absoluteRelevance = computeAbsoluteRelevance(lemmas);
+        applyAuthority(absoluteRelevance);
         Map<Page, Float> relativeRelevance = computeRelativeRelevance(absoluteRelevance);
 
         LemmasFinder lemmasFinder = applicationContext.getBean(LemmasFinder.class);
@@ -173,6 +176,18 @@ public class SearchServiceImpl implements SearchService {
         return relevance;
     }
 
+    // Релевантность умножается на авторитетность страницы в степени authority-weight
+    private void applyAuthority(@NonNull Map<Page, Float> relevance) {
+        double weight = searchSettings.getAuthorityWeight();
+        if (relevance.isEmpty() || weight <= 0) {
+            return;
+        }
+
+        relevance.replaceAll((page, value) -> page.getAuthority() == null
+                ? value
+                : (float) (value * Math.pow(page.getAuthority(), weight)));
+    }
+
     private Map<Page, Float> computeRelativeRelevance(@NonNull Map<Page, Float> absoluteRelevance) {
         if (absoluteRelevance.isEmpty()) {
             return Collections.emptyMap();
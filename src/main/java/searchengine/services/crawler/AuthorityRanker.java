@@ -0,0 +1,76 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.model.Site;
+import searchengine.repository.PageRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Авторитетность страниц сайта по графу ссылок, сохранённому обходом ({@link LinkGraph}).
+ * Рассчитывается после полного обхода сайта и используется в релевантности поиска независимо от запроса.
+ * Значения округляются до шага 2^(1/8), чтобы страницы с одинаковым значением обновлялись одним запросом.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AuthorityRanker {
+
+    private static final double DAMPING = 0.85;
+    private static final int MAX_ITERATIONS = 50;
+    private static final double TOLERANCE = 1e-6;
+    private static final int STEPS_PER_DOUBLING = 8;
+    private static final int UPDATE_BATCH_SIZE = 1000;
+
+    private final PageRepository pageRepository;
+    private final UrlCanonicalizer urlCanonicalizer;
+
+    public void rank(@NonNull Site site) {
+        var start = System.currentTimeMillis();
+        var pages = pageRepository.findLinksBySite(site);
+
+        var builder = new LinkGraph.Builder(pages.size());
+        var nodes = new int[pages.size()];
+        for (int i = 0; i < pages.size(); i++) {
+            // Пути прошлых обходов могли сохраниться до изменения правил приведения адресов
+            var path = pages.get(i).getPath();
+            var canonicalPath = urlCanonicalizer.canonicalize(site.getUrl(), null, path);
+            nodes[i] = builder.addNode(canonicalPath == null ? path : canonicalPath);
+        }
+
+        for (int i = 0; i < pages.size(); i++) {
+            for (var fingerprint : LinkGraph.decodeLinks(pages.get(i).getOutLinks())) {
+                var target = builder.nodeOf(fingerprint);
+                if (target != -1) {
+                    builder.addEdge(nodes[i], target);
+                }
+            }
+        }
+
+        var graph = builder.build();
+        var scores = graph.pageRank(DAMPING, MAX_ITERATIONS, TOLERANCE);
+
+        var steps = new HashMap<Integer, List<Integer>>();
+        for (int i = 0; i < pages.size(); i++) {
+            var step = (int) Math.round(Math.log(scores[nodes[i]]) / Math.log(2) * STEPS_PER_DOUBLING);
+            steps.computeIfAbsent(step, k -> new ArrayList<>()).add(pages.get(i).getId());
+        }
+
+        for (var entry : steps.entrySet()) {
+            var authority = (float) Math.pow(2, entry.getKey() / (double) STEPS_PER_DOUBLING);
+            var ids = entry.getValue();
+            for (int from = 0; from < ids.size(); from += UPDATE_BATCH_SIZE) {
+                pageRepository.updateAuthority(ids.subList(from, Math.min(from + UPDATE_BATCH_SIZE, ids.size())),
+                        authority);
+            }
+        }
+
+        log.info("{}: авторитетность {} страниц по {} ссылкам рассчитана за {} мс", site.getUrl(), graph.getNodes(),
+                graph.getEdges(), System.currentTimeMillis() - start);
+    }
+}
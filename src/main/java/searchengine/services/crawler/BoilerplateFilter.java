@@ -0,0 +1,213 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import searchengine.config.SitesList;
+import searchengine.dto.indexing.ParsedPage;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.repository.PageRepository;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Исключение из индексации блоков шаблона сайта: меню, подвалов, баннеров и боковых колонок.
+ * Для каждого сайта считается, на скольких страницах встречается текст каждого блока; блок,
+ * встретившийся не менее чем на boilerplate-repeats страницах, считается частью шаблона.
+ * Счётчики начинаются с выборки уже сохранённых страниц сайта, поэтому при переиндексации шаблон
+ * распознаётся с первых страниц. При первом обходе сайта текст первых страниц выделяется по неполным счётчикам:
+ * такие страницы обрабатываются заново, когда счётчики заполнятся (см. {@link #takeColdPages(Site)}).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BoilerplateFilter {
+
+    private static final int SAMPLE_PAGES = 50;
+    private static final int MAX_BLOCKS = 200_000; // Счётчиков на сайт, редкие блоки вытесняются
+    private static final int WARM_UP_PAGES = SAMPLE_PAGES; // Страниц, после которых счётчики считаются заполненными
+
+    private final SitesList sitesList;
+    private final PageRepository pageRepository;
+
+    private final Map<Integer, SiteBlocks> sites = new ConcurrentHashMap<>();
+
+    /**
+     * Учитывает блоки страницы и возвращает её текст без блоков шаблона.
+     * Если удаление выключено для сайта или от страницы ничего не остаётся, возвращается весь текст.
+     */
+    public String extractContent(@NonNull Page page, @NonNull ParsedPage parsedPage) {
+        if (!isEnabled(page.getSite())) {
+            return parsedPage.getText();
+        }
+
+        var blocks = getBlocks(page.getSite());
+        var hashes = hashBlocks(parsedPage.getBlocks());
+        var templateHashes = blocks.count(page.getId(), hashes, Math.max(sitesList.getBoilerplateRepeats(), 2));
+        if (templateHashes.isEmpty()) {
+            return parsedPage.getText();
+        }
+
+        var content = new StringBuilder();
+        var pageBlocks = parsedPage.getBlocks();
+        for (int i = 0; i < pageBlocks.size(); i++) {
+            if (!templateHashes.contains(hashes[i])) {
+                content.append(pageBlocks.get(i)).append(' ');
+            }
+        }
+
+        return content.isEmpty() ? parsedPage.getText() : content.toString().strip();
+    }
+
+    /**
+     * Счётчики блоков сайта заполнены: учтено не меньше {@value #WARM_UP_PAGES} страниц, счётчики начаты
+     * с выборки страниц завершённого обхода или полный обход сайта завершён.
+     */
+    public boolean isWarm(@NonNull Site site) {
+        return !isEnabled(site) || getBlocks(site).isWarm();
+    }
+
+    /**
+     * Возвращает (один раз) страницы, текст которых выделен до заполнения счётчиков, если счётчики уже заполнены.
+     */
+    public List<Integer> takeColdPages(@NonNull Site site) {
+        var blocks = sites.get(site.getId());
+        return blocks == null ? List.of() : blocks.takeColdPages();
+    }
+
+    /**
+     * Полный обход сайта завершён: счётчики учли все его страницы.
+     */
+    public void completeCrawl(@NonNull Site site) {
+        var blocks = sites.get(site.getId());
+        if (blocks != null) {
+            blocks.setWarm();
+        }
+    }
+
+    public void forget(@NonNull Site site) {
+        sites.remove(site.getId());
+    }
+
+    private boolean isEnabled(Site site) {
+        var settings = sitesList.findSite(site.getUrl());
+        if (settings != null && settings.getRemoveBoilerplate() != null) {
+            return settings.getRemoveBoilerplate();
+        }
+
+        return sitesList.isRemoveBoilerplate();
+    }
+
+    private SiteBlocks getBlocks(Site site) {
+        var blocks = sites.get(site.getId());
+        if (blocks != null) {
+            return blocks;
+        }
+
+        var loaded = new SiteBlocks();
+        var sample = pageRepository.findBySiteAndCode(site, 200, PageRequest.of(0, SAMPLE_PAGES));
+        for (var page : sample) {
+            if (page.canBeParsed()) {
+                var parsed = ParsedPage.parse(Jsoup.parse(page.getContent()), page.getContent());
+                loaded.add(page.getId(), hashBlocks(parsed.getBlocks()));
+            }
+        }
+        if (site.getIndexedTime() != null && !sample.isEmpty()) {
+            loaded.setWarm();
+        }
+        log.info("{}: блоки шаблона посчитаны по {} сохранённым страницам", site.getUrl(), sample.size());
+
+        blocks = sites.putIfAbsent(site.getId(), loaded);
+        return blocks == null ? loaded : blocks;
+    }
+
+    // 64-битный FNV-1a текста блока без учёта регистра
+    private static long[] hashBlocks(List<String> blocks) {
+        var hashes = new long[blocks.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            var hash = 0xcbf29ce484222325L;
+            var block = blocks.get(i).toLowerCase(Locale.ROOT);
+            for (int j = 0; j < block.length(); j++) {
+                hash ^= block.charAt(j);
+                hash *= 0x100000001b3L;
+            }
+            hashes[i] = hash;
+        }
+
+        return hashes;
+    }
+
+    private static class SiteBlocks {
+        private final Map<Long, Integer> pageCounts = new HashMap<>(); // Число страниц с блоком
+        private final Set<Integer> countedPages = new HashSet<>();
+        private final Set<Integer> coldPages = new HashSet<>(); // Текст выделен до заполнения счётчиков
+        private boolean warm = false;
+
+        /**
+         * Учитывает блоки страницы (один раз для страницы) и возвращает блоки, встречающиеся
+         * не менее чем на minRepeats страницах.
+         */
+        private synchronized Set<Long> count(int pageId, long[] hashes, int minRepeats) {
+            var distinct = add(pageId, hashes);
+            if (!warm) {
+                coldPages.add(pageId);
+                warm = countedPages.size() >= WARM_UP_PAGES;
+            }
+
+            distinct.removeIf(hash -> pageCounts.getOrDefault(hash, 0) < minRepeats);
+            return distinct;
+        }
+
+        private synchronized Set<Long> add(int pageId, long[] hashes) {
+            var distinct = new HashSet<Long>();
+            for (var hash : hashes) {
+                distinct.add(hash);
+            }
+
+            if (countedPages.add(pageId)) {
+                distinct.forEach(hash -> pageCounts.merge(hash, 1, Integer::sum));
+                if (pageCounts.size() > MAX_BLOCKS) {
+                    evictRare();
+                }
+            }
+
+            return distinct;
+        }
+
+        private synchronized boolean isWarm() {
+            return warm;
+        }
+
+        private synchronized void setWarm() {
+            warm = true;
+        }
+
+        private synchronized List<Integer> takeColdPages() {
+            if (!warm || coldPages.isEmpty()) {
+                return List.of();
+            }
+
+            var pages = List.copyOf(coldPages);
+            coldPages.clear();
+            return pages;
+        }
+
+        // Вытесняются блоки, встреченные наименьшее число раз, пока не освободится четверть места
+        private void evictRare() {
+            for (int count = 1; pageCounts.size() > MAX_BLOCKS * 3 / 4; count++) {
+                var limit = count;
+                pageCounts.values().removeIf(pages -> pages <= limit);
+            }
+        }
+    }
+}
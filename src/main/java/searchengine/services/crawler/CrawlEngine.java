@@ -0,0 +1,383 @@
+package searchengine.services.crawler;
+
+import jakarta.annotation.PreDestroy;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchBot;
+import searchengine.config.SitesList;
+import searchengine.dto.indexing.PageAnalyzer;
+import searchengine.model.IndexingStatus;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.repository.PagePath;
+import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Движок обхода сайтов. Для каждого сайта запускается диспетчер, который берёт страницы
+ * из очереди {@link SiteCrawl} и передаёт их задачам {@link PageAnalyzer} на виртуальных потоках.
+ * Задача страницы завершается сразу после того, как найденные на ней ссылки поставлены в очередь.
+ * Пока исчерпан общий бюджет памяти {@link MemoryBudget}, диспетчеры не начинают обработку новых страниц.
+ * Общее число обрабатываемых страниц делится между сайтами по весам ({@link FairShareScheduler}).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CrawlEngine {
+
+    private final ApplicationContext applicationContext;
+    private final SearchBot searchBot;
+    private final SitesList sitesList;
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final RobotsCache robotsCache;
+    private final SitemapReader sitemapReader;
+    private final CrawlFrontier crawlFrontier;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final MemoryBudget memoryBudget;
+    private final FairShareScheduler fairShareScheduler;
+    private final AuthorityRanker authorityRanker;
+    private final BoilerplateFilter boilerplateFilter;
+
+    private static final int SITEMAP_BATCH_SIZE = 500;
+    private static final int SITEMAP_DEPTH = 1; // Адреса из sitemap считаются ссылками с главной страницы
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SiteCrawl createCrawl(@NonNull Page rootPage) {
+        var settings = sitesList.findSite(rootPage.getSite().getUrl());
+        if (settings == null) {
+            return new SiteCrawl(rootPage, searchBot.getWorkers());
+        }
+
+        return new SiteCrawl(rootPage, searchBot.getWorkers(), settings.getMaxPages(), settings.getMaxDepth());
+    }
+
+    /**
+     * Обход для повторного посещения страниц с ограничением числа загрузок бюджетом сайта.
+     */
+    public SiteCrawl createRevisitCrawl(@NonNull Page rootPage, int maxPages) {
+        var settings = sitesList.findSite(rootPage.getSite().getUrl());
+        var maxDepth = settings == null ? null : settings.getMaxDepth();
+
+        return new SiteCrawl(rootPage, searchBot.getWorkers(), maxPages, maxDepth);
+    }
+
+    public void start(@NonNull SiteCrawl crawl) {
+        seedVisitedPaths(crawl, false);
+        crawl.enqueue(crawl.getRootPage());
+        launch(crawl, true);
+    }
+
+    /**
+     * Возобновляет обход, прерванный перезапуском приложения. Очередью служат страницы сайта,
+     * не обработанные с начала обхода (crawl_started): новые страницы с кодом 102 и страницы прошлых обходов.
+     * Уже обработанные страницы повторно не загружаются.
+     */
+    public void resume(@NonNull SiteCrawl crawl) {
+        var pendingPages = seedVisitedPaths(crawl, true);
+
+        if (!isCrawled(crawl.getSite(), crawl.getRootPage().getLastCrawled())) {
+            crawl.enqueue(crawl.getRootPage());
+        }
+        for (var page : pendingPages) {
+            crawl.enqueue(page.getId(), page.getDepth(), SiteCrawl.DEFAULT_PRIORITY);
+        }
+
+        log.info("{}: возобновление обхода, в очереди {} страниц", crawl.getSite().getUrl(), pendingPages.size());
+        launch(crawl, true);
+    }
+
+    /**
+     * Повторно посещает страницы проиндексированного сайта, которые пора обновить.
+     * Известные страницы повторно в очередь не ставятся, новые ссылки обходятся в пределах ограничения обхода.
+     * Статус сайта не меняется, устаревшие страницы не удаляются.
+     */
+    public void revisit(@NonNull SiteCrawl crawl, @NonNull List<PagePath> duePages) {
+        var site = crawl.getSite();
+        var rootPath = crawl.getRootPage().getPath();
+        var visited = crawl.getVisited();
+
+        for (var page : pageRepository.findPathsBySite(site)) {
+            var path = urlCanonicalizer.canonicalize(site.getUrl(), null, page.getPath());
+            if (path != null && !path.equals(rootPath)) {
+                visited.seed(path, page.getId(), true);
+            }
+        }
+
+        for (var page : duePages) {
+            crawl.enqueue(page.getId(), page.getDepth(), SiteCrawl.DEFAULT_PRIORITY);
+        }
+        crawl.countAdmitted(duePages.size());
+
+        log.info("{}: повторное посещение {} страниц", site.getUrl(), duePages.size());
+        launch(crawl, false);
+    }
+
+    private void launch(SiteCrawl crawl, boolean fullCrawl) {
+        Thread.ofVirtual()
+                .name("crawl-" + crawl.getSite().getUrl())
+                .start(() -> dispatch(crawl, fullCrawl));
+    }
+
+    /**
+     * Заполняет множество посещённых путей страницами, сохранёнными в БД до начала обхода.
+     * Страницы, уже обработанные текущим обходом, повторно не посещаются.
+     * При возобновлении остальные страницы сразу помечаются как поставленные в очередь и возвращаются.
+     */
+    private List<PagePath> seedVisitedPaths(SiteCrawl crawl, boolean resume) {
+        var site = crawl.getSite();
+        var pendingPages = new ArrayList<PagePath>();
+        if (site.getId() == 0) {
+            return pendingPages;
+        }
+
+        var rootPath = crawl.getRootPage().getPath();
+        var visited = crawl.getVisited();
+        var admitted = 0;
+
+        for (var page : pageRepository.findPathsBySite(site)) {
+            var path = urlCanonicalizer.canonicalize(site.getUrl(), null, page.getPath());
+            if (path == null || path.equals(rootPath)) {
+                continue;
+            }
+
+            var crawled = isCrawled(site, page.getLastCrawled());
+            visited.seed(path, page.getId(), crawled || resume);
+            if (resume && !crawled) {
+                pendingPages.add(page);
+            }
+            if (crawled || resume) {
+                admitted++;
+            }
+        }
+        crawl.countAdmitted(admitted);
+
+        log.info("{}: известно {} путей до начала обхода", site.getUrl(), visited.size());
+        return pendingPages;
+    }
+
+    private static boolean isCrawled(Site site, LocalDateTime lastCrawled) {
+        var crawlStarted = site.getCrawlStarted();
+        return crawlStarted == null || (lastCrawled != null && !lastCrawled.isBefore(crawlStarted));
+    }
+
+    private void dispatch(SiteCrawl crawl, boolean fullCrawl) {
+        var site = crawl.getSite();
+
+        fairShareScheduler.register(crawl);
+        try {
+            // Ожидания диспетчера (robots.txt, очередь, память, общая ёмкость) прерываются отменой обхода
+            crawl.enterInterruptible();
+            try {
+                dispatchPages(crawl, fullCrawl);
+            } finally {
+                crawl.exitInterruptible();
+                // Дожидаемся завершения страниц, которые ещё обрабатываются (в том числе после отмены)
+                crawl.awaitInFlight();
+            }
+
+            if (!fullCrawl) {
+                return;
+            }
+
+            if (crawl.isTruncated()) {
+                // Непосещённые страницы прошлых обходов не удаляются: обход мог до них не дойти
+                log.info("{}: обход остановлен на ограничении в {} страниц", site.getUrl(), crawl.getMaxPages());
+            } else if (!crawl.isStopped() && site.getStatus() == IndexingStatus.INDEXING) {
+                removeStalePages(crawl);
+            }
+
+            if (!crawl.isStopped() && site.getStatus() == IndexingStatus.INDEXING) {
+                // Ошибка расчёта авторитетности не отменяет результат обхода
+                try {
+                    authorityRanker.rank(site);
+                } catch (Exception e) {
+                    log.error("{}: авторитетность страниц не рассчитана: {}", site.getUrl(), e.getLocalizedMessage());
+                }
+
+                boilerplateFilter.completeCrawl(site);
+
+                log.info("Завершено полное индексирование {} с URL {}", site.getName(), site.getUrl());
+                synchronized (site) {
+                    var now = LocalDateTime.now();
+                    site.setStatus(IndexingStatus.INDEXED);
+                    site.setStatusTime(now);
+                    site.setIndexedTime(now);
+                    siteRepository.save(site);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("{}: {}", site.getUrl(), e.getLocalizedMessage());
+        } finally {
+            fairShareScheduler.unregister(crawl);
+            crawl.complete();
+        }
+    }
+
+    private void dispatchPages(SiteCrawl crawl, boolean fullCrawl) throws InterruptedException {
+        prepare(crawl, fullCrawl);
+
+        while (!crawl.isStopped()) {
+            memoryBudget.awaitAvailable();
+            crawl.acquireSlot();
+
+            var queued = crawl.next();
+            // Место в общей ёмкости занимается только для страницы, которая уже есть в очереди
+            if (queued == null || !fairShareScheduler.acquire(crawl)) {
+                crawl.releaseSlot();
+                break;
+            }
+
+            executor.execute(() -> {
+                try {
+                    analyzePage(crawl, queued);
+                } finally {
+                    fairShareScheduler.release(crawl);
+                    crawl.releaseSlot();
+                }
+            });
+        }
+    }
+
+    /**
+     * Загружает страницу из БД и обрабатывает её. Если страница уже удалена, она считается обработанной.
+     */
+    private void analyzePage(SiteCrawl crawl, SiteCrawl.QueuedPage queued) {
+        PageAnalyzer task = null;
+        try {
+            var page = pageRepository.findById(queued.pageId()).orElse(null);
+            if (page != null) {
+                page.setSite(crawl.getSite());
+                page.setDepth(queued.depth());
+
+                task = applicationContext.getBean(PageAnalyzer.class);
+                task.setPage(page);
+                task.setCrawl(crawl);
+                task.setAttempt(queued.attempt());
+            }
+        } catch (Exception e) {
+            log.error("{}: {}", crawl.getSite().getUrl(), e.getLocalizedMessage());
+        }
+
+        if (task == null) {
+            crawl.pageDone();
+            return;
+        }
+
+        task.run();
+    }
+
+    /**
+     * Загружает robots.txt сайта и при полном обходе запускает чтение sitemap.
+     * Корневая страница обходится в любом случае.
+     */
+    private void prepare(SiteCrawl crawl, boolean fullCrawl) throws InterruptedException {
+        var rules = robotsCache.getRules(crawl.getSite());
+        crawl.setRobotsRules(rules);
+
+        if (!fullCrawl || !searchBot.isUseSitemaps()) {
+            return;
+        }
+
+        crawl.beginWork();
+        executor.execute(() -> {
+            try {
+                seedFromSitemaps(crawl, rules);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.info("{}: ошибка чтения sitemap - {}", crawl.getSite().getUrl(), e.getLocalizedMessage());
+            } finally {
+                crawl.pageDone();
+            }
+        });
+    }
+
+    /**
+     * Ставит в очередь адреса из sitemap. Более свежие по lastmod страницы обходятся раньше.
+     */
+    private void seedFromSitemaps(SiteCrawl crawl, RobotsRules rules) throws InterruptedException {
+        var site = crawl.getSite();
+        List<SitemapReader.Entry> entries;
+        crawl.enterInterruptible();
+        try {
+            entries = sitemapReader.read(site, rules.getSitemaps());
+        } finally {
+            crawl.exitInterruptible();
+        }
+        if (crawl.isStopped()) {
+            return;
+        }
+        var priorities = new HashMap<String, Long>();
+
+        for (var entry : entries) {
+            var path = urlCanonicalizer.canonicalize(site.getUrl(), null, entry.url());
+            if (path == null) {
+                continue; // Адрес другого сайта или некорректный адрес
+            }
+
+            // Адреса без lastmod - сразу после датированных, но раньше найденных по ссылкам
+            var priority = entry.lastModified() > 0 ? entry.lastModified() : SiteCrawl.DEFAULT_PRIORITY + 1;
+            priorities.merge(path, priority, Math::max);
+        }
+
+        var paths = new ArrayList<>(priorities.keySet());
+        for (int from = 0; from < paths.size() && !crawl.isStopped(); from += SITEMAP_BATCH_SIZE) {
+            var batch = paths.subList(from, Math.min(from + SITEMAP_BATCH_SIZE, paths.size()));
+            for (var page : crawlFrontier.admit(crawl, batch, SITEMAP_DEPTH)) {
+                crawl.enqueue(page, priorities.getOrDefault(page.getPath(), SiteCrawl.DEFAULT_PRIORITY));
+            }
+        }
+    }
+
+    /**
+     * Удаляет страницы, которые остались от прошлых обходов и не были найдены текущим.
+     */
+    private void removeStalePages(SiteCrawl crawl) {
+        var site = crawl.getSite();
+        if (site.getCrawlStarted() == null) {
+            return;
+        }
+
+        var staleIds = pageRepository.findIdsNotCrawledSince(site, site.getCrawlStarted());
+        if (staleIds.isEmpty()) {
+            return;
+        }
+
+        log.info("{}: удаление {} страниц, не найденных при переиндексации", site.getUrl(), staleIds.size());
+        for (var staleId : staleIds) {
+            if (crawl.isStopped()) {
+                return;
+            }
+
+            var stalePage = pageRepository.findById(staleId).orElse(null);
+            if (stalePage == null) {
+                continue;
+            }
+
+            stalePage.setSite(site);
+            var task = applicationContext.getBean(PageAnalyzer.class);
+            task.setPage(stalePage);
+            task.setCrawl(crawl);
+            task.removePage();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,102 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.model.Page;
+import searchengine.repository.PageRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Допуск найденных путей в очередь обхода: отсеивает уже встречавшиеся, запрещённые robots.txt
+ * и правилами путей сайта пути, а также адреса ловушек (см. {@link PathFilter}),
+ * учитывает ограничения глубины и числа страниц обхода,
+ * сохраняет новые страницы и ставит в очередь страницы прошлых обходов для повторного посещения.
+ */
+@Component
+@RequiredArgsConstructor
+public class CrawlFrontier {
+
+    private final PageRepository pageRepository;
+    private final PathFilter pathFilter;
+    private final UrlCanonicalizer urlCanonicalizer;
+
+    /**
+     * Возвращает страницы, которые нужно поставить в очередь обхода. Страницы прошлых обходов
+     * возвращаются без содержимого из БД: они нужны только для постановки в очередь.
+     *
+     * @param depth глубина найденных страниц
+     */
+    public List<Page> admit(@NonNull SiteCrawl crawl, @NonNull Collection<String> paths, int depth) {
+        if (!crawl.isWithinDepth(depth)) {
+            return Collections.emptyList();
+        }
+
+        var robotsRules = crawl.getRobotsRules();
+        // robots.txt задаёт пути от корня хоста в исходном регистре, а пути обхода - от раздела сайта
+        // и в нижнем регистре, если регистр не учитывается
+        var siteUrl = crawl.getSite().getUrl();
+        var sitePath = UrlCanonicalizer.sitePath(siteUrl);
+        var robotsIgnoreCase = !urlCanonicalizer.getRules(siteUrl).isCaseSensitive();
+        var pathRules = pathFilter.getRules(crawl.getSite().getUrl());
+        var visited = crawl.getVisited();
+        var newPages = new ArrayList<Page>();
+        var revisitPages = new ArrayList<Page>();
+
+        // Проверка «уже встречалась?» выполняется в памяти, без запроса к БД и блокировки сайта
+        for (var path : paths) {
+            if (!robotsRules.isAllowed(sitePath + path, robotsIgnoreCase) || !PathFilter.isAllowed(path, pathRules)) {
+                continue;
+            }
+
+            if (!crawl.reservePage()) {
+                break;
+            }
+
+            var pageId = visited.claim(path);
+            if (pageId == VisitedPaths.CLAIMED) {
+                crawl.releasePage();
+            } else if (pageId == VisitedPaths.UNKNOWN) {
+                if (PathFilter.isTrap(path, pathRules) || !pathFilter.countTemplate(crawl, path)) {
+                    // Путь остаётся занятым: адрес ловушки не проверяется повторно и не сохраняется
+                    crawl.releasePage();
+                } else {
+                    newPages.add(createPage(crawl, path, depth));
+                }
+            } else {
+                // Сохранена прошлым обходом (инкрементальная переиндексация). Признаки ловушек к ней не применяются,
+                // чтобы уже проиндексированные страницы не удалялись в зависимости от порядка обхода
+                pathFilter.countTemplate(crawl, path);
+                var revisitPage = createPage(crawl, path, depth);
+                revisitPage.setId(pageId);
+                revisitPages.add(revisitPage);
+            }
+        }
+
+        if (crawl.isStopped()) {
+            return Collections.emptyList();
+        }
+
+        pageRepository.saveAll(newPages);
+
+        var pages = new ArrayList<Page>(newPages.size() + revisitPages.size());
+        pages.addAll(newPages);
+        pages.addAll(revisitPages);
+
+        return pages;
+    }
+
+    private Page createPage(SiteCrawl crawl, String path, int depth) {
+        var newPage = new Page();
+        newPage.setSite(crawl.getSite());
+        newPage.setPath(path);
+        newPage.setDepth(depth);
+        newPage.setCode(102); // Processing («Идёт обработка»)
+
+        return newPage;
+    }
+}
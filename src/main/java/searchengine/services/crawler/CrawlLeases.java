@@ -0,0 +1,130 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.SitesList;
+import searchengine.repository.CrawlLeaseRepository;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Аренды обхода сайтов узлом при совместной индексации (indexing-settings.cluster).
+ * Пока сайт арендован узлом, другие узлы его не обходят; аренда, которую владелец не продлил, переходит к другим.
+ * Если совместная индексация выключена, любая аренда считается полученной.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CrawlLeases {
+
+    private final SitesList sitesList;
+    private final CrawlLeaseRepository crawlLeaseRepository;
+
+    private final Set<String> held = ConcurrentHashMap.newKeySet(); // Аренды этого узла
+    private volatile String nodeId;
+
+    public boolean isEnabled() {
+        return sitesList.getCluster().isEnabled();
+    }
+
+    public String getNodeId() {
+        if (nodeId == null) {
+            var configured = sitesList.getCluster().getNodeId();
+            nodeId = configured == null || configured.isBlank()
+                    ? ManagementFactory.getRuntimeMXBean().getName()
+                    : configured.strip();
+        }
+
+        return nodeId;
+    }
+
+    /**
+     * Получает аренду сайта, если она свободна или просрочена. Аренда, которую узел уже держит, повторно не выдаётся.
+     */
+    public boolean acquire(@NonNull String url) {
+        if (!isEnabled()) {
+            return true;
+        }
+        if (held.contains(url)) {
+            return false;
+        }
+
+        // Строку аренды мог одновременно создать другой узел - тогда вставка пропускается
+        if (!crawlLeaseRepository.existsById(url)) {
+            crawlLeaseRepository.create(url);
+        }
+
+        var now = LocalDateTime.now();
+        if (crawlLeaseRepository.acquire(url, getNodeId(), expiresAt(now), now) == 0) {
+            return false;
+        }
+
+        held.add(url);
+        return true;
+    }
+
+    public void release(@NonNull String url) {
+        if (isEnabled() && held.remove(url)) {
+            crawlLeaseRepository.release(url, getNodeId());
+        }
+    }
+
+    /**
+     * Продлевает аренды узла. Возвращает адреса сайтов, аренды которых перешли к другим узлам.
+     */
+    public Set<String> renewHeld() {
+        if (!isEnabled()) {
+            return Collections.emptySet();
+        }
+
+        var lost = new HashSet<String>();
+        var expires = expiresAt(LocalDateTime.now());
+        for (var url : held) {
+            if (crawlLeaseRepository.renew(url, getNodeId(), expires) == 0) {
+                log.warn("{}: аренда обхода перешла к другому узлу", url);
+                held.remove(url);
+                lost.add(url);
+            }
+        }
+
+        return lost;
+    }
+
+    public boolean isStopRequested(@NonNull String url) {
+        if (!isEnabled()) {
+            return false;
+        }
+
+        var lease = crawlLeaseRepository.findById(url).orElse(null);
+        return lease != null && lease.isStopRequested();
+    }
+
+    /**
+     * Просит другой узел остановить обход сайта. Возвращает {@code false}, если действующей аренды другого узла нет.
+     */
+    public boolean requestStop(@NonNull String url) {
+        return isEnabled() && crawlLeaseRepository.requestStop(url, getNodeId(), LocalDateTime.now()) > 0;
+    }
+
+    /**
+     * Сайты, действующие аренды которых принадлежат другим узлам.
+     */
+    public Set<String> getLeasedByOthers() {
+        if (!isEnabled()) {
+            return Collections.emptySet();
+        }
+
+        return new HashSet<>(crawlLeaseRepository.findUrlsLeasedByOthers(getNodeId(), LocalDateTime.now()));
+    }
+
+    private LocalDateTime expiresAt(LocalDateTime now) {
+        return now.plusNanos(sitesList.getCluster().getLeaseTimeout() * 1_000_000);
+    }
+}
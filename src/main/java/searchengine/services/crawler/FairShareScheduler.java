@@ -0,0 +1,127 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchBot;
+import searchengine.config.SitesList;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Распределение общего числа обрабатываемых страниц (total-workers) между обходами сайтов по весам.
+ * Освободившееся место получает ожидающий обход с наименьшим отношением занятых мест к весу сайта,
+ * поэтому каждый сайт получает долю, пропорциональную весу, а доля простаивающих сайтов достаётся остальным.
+ * Ограничение workers для одного сайта продолжает действовать.
+ */
+@Component
+public class FairShareScheduler {
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final SitesList sitesList;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<SiteCrawl, Share> shares = new IdentityHashMap<>();
+    private int used = 0;
+
+    public FairShareScheduler(SearchBot searchBot, SitesList sitesList) {
+        this.sitesList = sitesList;
+        this.capacity = Math.max(searchBot.getTotalWorkers(), 1);
+    }
+
+    public void register(@NonNull SiteCrawl crawl) {
+        var settings = sitesList.findSite(crawl.getSite().getUrl());
+        var weight = settings == null || settings.getWeight() == null ? 1 : Math.max(settings.getWeight(), 1);
+
+        lock.lock();
+        try {
+            shares.put(crawl, new Share(weight));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void unregister(@NonNull SiteCrawl crawl) {
+        lock.lock();
+        try {
+            shares.remove(crawl);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ожидает места для страницы обхода. Возвращает {@code false}, если обход остановлен во время ожидания.
+     */
+    public boolean acquire(@NonNull SiteCrawl crawl) throws InterruptedException {
+        lock.lock();
+        try {
+            var share = shares.get(crawl);
+            if (share == null) {
+                throw new IllegalStateException("Обход не зарегистрирован: " + crawl.getSite().getUrl());
+            }
+
+            share.waiting = true;
+            try {
+                while (used >= capacity || !isNext(share)) {
+                    if (crawl.isStopped()) {
+                        return false;
+                    }
+                    released.await(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                share.waiting = false;
+            }
+
+            used++;
+            share.inUse++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(@NonNull SiteCrawl crawl) {
+        lock.lock();
+        try {
+            used--;
+            var share = shares.get(crawl);
+            if (share != null) {
+                share.inUse--;
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Среди ожидающих обходов нет обхода с меньшей занятой долей
+    private boolean isNext(Share share) {
+        for (var other : shares.values()) {
+            if (other != share && other.waiting && other.load() < share.load()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Share {
+        private final int weight;
+        private int inUse = 0;
+        private boolean waiting = false;
+
+        private Share(int weight) {
+            this.weight = weight;
+        }
+
+        private double load() {
+            return (inUse + 1) / (double) weight;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package searchengine.services.crawler;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+/**
+ * Ответ сервера: код, заголовки и распакованное тело без разбора.
+ */
+@Getter
+@AllArgsConstructor
+public class FetchResult {
+    private final URI uri;
+    private final int statusCode;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final boolean truncated; // Тело обрезано или отброшено по ограничению размера
+
+    public String header(String name) {
+        return headers.firstValue(name).orElse(null);
+    }
+
+    public String getContentType() {
+        return parseContentType(header("Content-Type"));
+    }
+
+    static String parseContentType(String contentType) {
+        if (contentType == null) {
+            return "";
+        }
+
+        var endIndex = contentType.indexOf(';');
+        if (endIndex != -1) {
+            contentType = contentType.substring(0, endIndex);
+        }
+
+        return contentType.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Кодировка из Content-Type или {@code null}, если сервер её не указал.
+     */
+    public Charset getCharset() {
+        var contentType = header("Content-Type");
+        if (contentType == null) {
+            return null;
+        }
+
+        for (var parameter : contentType.split(";")) {
+            var pair = parameter.strip().split("=", 2);
+            if (pair.length == 2 && pair[0].strip().equalsIgnoreCase("charset")) {
+                try {
+                    return Charset.forName(pair[1].strip().replace("\"", ""));
+                } catch (Exception e) {
+                    return null;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // Те же типы, что принимает jsoup: text/*, application/xml и application/*+xml
+    public boolean isSupportedContentType() {
+        return isSupportedContentType(getContentType());
+    }
+
+    static boolean isSupportedContentType(String contentType) {
+        return contentType.isEmpty() || contentType.startsWith("text/") || contentType.equals("application/xml")
+                || (contentType.startsWith("application/") && contentType.endsWith("+xml"));
+    }
+
+    public boolean isError() {
+        return statusCode >= 400;
+    }
+
+    /**
+     * Ошибка, которая может не повториться при следующем запросе: перегрузка или сбой сервера.
+     */
+    public boolean isTransientError() {
+        return statusCode == 408 || statusCode == 429 || (statusCode >= 500 && statusCode != 501);
+    }
+
+    public boolean isNotModified() {
+        return statusCode == 304;
+    }
+
+    /**
+     * SHA-256 тела ответа в шестнадцатеричном виде.
+     */
+    public String getContentHash() {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
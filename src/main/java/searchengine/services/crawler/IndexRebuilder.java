@@ -0,0 +1,224 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import searchengine.dto.indexing.ParsedPage;
+import searchengine.model.Index;
+import searchengine.model.IndexingStatus;
+import searchengine.model.Lemma;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.services.LemmasFinder;
+import searchengine.services.crawler.IndexingPipeline.Stage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Перестроение лемм и индексов сайта по содержимому страниц, сохранённому в БД при обходе, без сетевых запросов.
+ * Нужно после изменения правил лемматизации, словарей морфологии или выделения текста.
+ * Страницы пачки разбираются и лемматизируются параллельно (в пределах стадий parse и lemmatize),
+ * леммы и индексы пачки записываются вместе. Копии других страниц не индексируются, как и при обходе.
+ * На время перестроения сайт исключается из поиска; остановленное перестроение оставляет сайт в статусе FAILED.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexRebuilder {
+
+    private static final int BATCH_SIZE = 200;
+    private static final int MEMORY_FACTOR = 4; // Как и при обходе: оценка памяти на разбор и леммы по длине HTML
+
+    private final ApplicationContext applicationContext;
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+    private final BoilerplateFilter boilerplateFilter;
+    private final IndexingPipeline indexingPipeline;
+    private final MemoryBudget memoryBudget;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Запускает перестроение; завершение ожидается через {@link SiteCrawl#awaitCompletion()},
+     * остановка - через {@link SiteCrawl#cancel()}. Обход используется только для отмены и учёта страниц.
+     */
+    public void rebuild(@NonNull SiteCrawl crawl) {
+        Thread.ofVirtual()
+                .name("rebuild-" + crawl.getSite().getUrl())
+                .start(() -> {
+                    try {
+                        rebuildSite(crawl);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        saveError(crawl.getSite(), e);
+                    } finally {
+                        crawl.complete();
+                    }
+                });
+    }
+
+    private void rebuildSite(SiteCrawl crawl) throws InterruptedException {
+        var site = crawl.getSite();
+        var pageIds = pageRepository.findIndexableIds(site);
+        log.info("{}: переиндексация {} сохранённых страниц", site.getUrl(), pageIds.size());
+
+        // Поиск по неполному индексу не выполняется, пока перестроение не завершится
+        synchronized (site) {
+            site.setIndexedTime(null);
+            siteRepository.save(site);
+            lemmaRepository.deleteBySite(site);
+        }
+
+        for (int from = 0; from < pageIds.size(); from += BATCH_SIZE) {
+            if (crawl.isStopped()) {
+                saveStopped(site);
+                return;
+            }
+
+            var batch = pageIds.subList(from, Math.min(from + BATCH_SIZE, pageIds.size()));
+            // Содержимое пачки учитывается в бюджете памяти наравне со страницами обходов
+            memoryBudget.awaitAvailable();
+            var pages = new ArrayList<Page>();
+            pageRepository.findAllById(batch).forEach(pages::add);
+            var reservedBytes = pages.stream().mapToLong(page -> page.getContent().length()).sum() * MEMORY_FACTOR;
+            memoryBudget.reserve(reservedBytes);
+            try {
+                var lemmas = findLemmas(site, pages);
+                if (crawl.isStopped()) {
+                    saveStopped(site);
+                    return;
+                }
+
+                saveBatch(site, lemmas);
+            } finally {
+                memoryBudget.release(reservedBytes);
+            }
+            crawl.countAdmitted(batch.size());
+        }
+
+        synchronized (site) {
+            if (crawl.isStopped()) {
+                saveStopped(site);
+                return;
+            }
+
+            var now = LocalDateTime.now();
+            site.setStatus(IndexingStatus.INDEXED);
+            site.setStatusTime(now);
+            site.setIndexedTime(now);
+            siteRepository.save(site);
+        }
+    }
+
+    private void saveStopped(Site site) {
+        log.info("{}: переиндексация остановлена, индекс сайта неполный", site.getUrl());
+
+        synchronized (site) {
+            site.setStatus(IndexingStatus.FAILED);
+            site.setLastError("Переиндексация остановлена, индекс сайта неполный");
+            site.setStatusTime(LocalDateTime.now());
+            siteRepository.save(site);
+        }
+    }
+
+    private void saveError(Site site, Exception e) {
+        var error = "Ошибка переиндексации: " + e.getLocalizedMessage();
+        log.error("{} - {}", site.getUrl(), error);
+
+        synchronized (site) {
+            site.setStatus(IndexingStatus.FAILED);
+            site.setLastError(error);
+            site.setStatusTime(LocalDateTime.now());
+            siteRepository.save(site);
+        }
+    }
+
+    private Map<Page, Map<String, Integer>> findLemmas(Site site, List<Page> pages) throws InterruptedException {
+        var tasks = new HashMap<Page, Future<Map<String, Integer>>>();
+        for (var page : pages) {
+            page.setSite(site);
+            tasks.put(page, executor.submit(() -> findLemmas(page)));
+        }
+
+        var lemmas = new HashMap<Page, Map<String, Integer>>();
+        for (var task : tasks.entrySet()) {
+            try {
+                lemmas.put(task.getKey(), task.getValue().get());
+            } catch (ExecutionException e) {
+                log.error("{}: {}", task.getKey().getUrl(), e.getCause().getLocalizedMessage());
+            }
+        }
+
+        return lemmas;
+    }
+
+    private Map<String, Integer> findLemmas(Page page) {
+        String text;
+        try (var stage = indexingPipeline.enter(Stage.PARSE)) {
+            var content = page.getContent();
+            var parsedPage = ParsedPage.parse(Jsoup.parse(content, page.getUrl()), content);
+            text = boilerplateFilter.extractContent(page, parsedPage);
+        }
+
+        try (var stage = indexingPipeline.enter(Stage.LEMMATIZE)) {
+            return applicationContext.getBean(LemmasFinder.class).findLemmas(text);
+        }
+    }
+
+    // Частота леммы - число страниц сайта, на которых она встречается
+    private void saveBatch(Site site, Map<Page, Map<String, Integer>> pageLemmas) {
+        var pageCounts = new HashMap<String, Integer>();
+        pageLemmas.values().forEach(lemmas -> lemmas.keySet().forEach(name -> pageCounts.merge(name, 1, Integer::sum)));
+
+        try (var stage = indexingPipeline.enter(Stage.PERSIST)) {
+            synchronized (site) {
+                var lemmasCache = lemmaRepository.findBySiteAndLemmaIn(site, pageCounts.keySet()).stream()
+                        .collect(Collectors.toMap(Lemma::getLemma, Function.identity()));
+
+                for (var entry : pageCounts.entrySet()) {
+                    var lemma = lemmasCache.get(entry.getKey());
+                    if (lemma == null) {
+                        lemma = new Lemma();
+                        lemma.setSite(site);
+                        lemma.setLemma(entry.getKey());
+                        lemmasCache.put(entry.getKey(), lemma);
+                    }
+                    lemma.setFrequency(lemma.getFrequency() + entry.getValue());
+                }
+                lemmaRepository.saveAll(lemmasCache.values());
+
+                var indexes = new ArrayList<Index>();
+                for (var entry : pageLemmas.entrySet()) {
+                    for (var lemmaEntry : entry.getValue().entrySet()) {
+                        var index = new Index();
+                        index.setPage(entry.getKey());
+                        index.setLemma(lemmasCache.get(lemmaEntry.getKey()));
+                        index.setRank(lemmaEntry.getValue());
+                        indexes.add(index);
+                    }
+                }
+                indexRepository.saveAll(indexes);
+            }
+        }
+    }
+}
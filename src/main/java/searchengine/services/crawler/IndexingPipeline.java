@@ -0,0 +1,116 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchBot;
+import searchengine.dto.statistics.StageStatistics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Стадии обработки страницы: загрузка, разбор, лемматизация и запись в БД. У каждой стадии своя
+ * параллельность, поэтому сетевые запросы, работа процессора и запросы к БД ограничиваются независимо:
+ * задержки БД не останавливают загрузку, а медленные ответы серверов не занимают процессор.
+ * Страницы, ожидающие стадию, образуют её очередь, длина которой ограничена числом обрабатываемых страниц
+ * (total-workers).
+ */
+@Component
+public class IndexingPipeline {
+
+    public enum Stage {
+        FETCH, PARSE, LEMMATIZE, PERSIST
+    }
+
+    private final Map<Stage, StageLimit> stages = new EnumMap<>(Stage.class);
+
+    public IndexingPipeline(SearchBot searchBot) {
+        var settings = searchBot.getPipeline();
+        stages.put(Stage.FETCH, new StageLimit(settings.getFetch()));
+        stages.put(Stage.PARSE, new StageLimit(settings.getParse()));
+        stages.put(Stage.LEMMATIZE, new StageLimit(settings.getLemmatize()));
+        stages.put(Stage.PERSIST, new StageLimit(settings.getPersist()));
+    }
+
+    /**
+     * Ожидает места в стадии. Место освобождается закрытием возвращённого разрешения.
+     */
+    public StagePermit enter(@NonNull Stage stage) {
+        var limit = stages.get(stage);
+
+        limit.queued.incrementAndGet();
+        try {
+            limit.semaphore.acquireUninterruptibly();
+        } finally {
+            limit.queued.decrementAndGet();
+        }
+
+        return new StagePermit(limit);
+    }
+
+    /**
+     * Как {@link #enter(Stage)}, но ожидание прерывается (отменой обхода).
+     */
+    public StagePermit enterInterruptibly(@NonNull Stage stage) throws InterruptedException {
+        var limit = stages.get(stage);
+
+        limit.queued.incrementAndGet();
+        try {
+            limit.semaphore.acquire();
+        } finally {
+            limit.queued.decrementAndGet();
+        }
+
+        return new StagePermit(limit);
+    }
+
+    public List<StageStatistics> getStatistics() {
+        var statistics = new ArrayList<StageStatistics>();
+        stages.forEach((stage, limit) -> {
+            var item = new StageStatistics();
+            item.setName(stage.name().toLowerCase(Locale.ROOT));
+            item.setParallelism(limit.parallelism);
+            item.setActive(limit.active.get());
+            item.setQueued(limit.queued.get());
+            statistics.add(item);
+        });
+
+        return statistics;
+    }
+
+    private static class StageLimit {
+        private final int parallelism;
+        private final Semaphore semaphore;
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+
+        private StageLimit(int parallelism) {
+            this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            this.semaphore = new Semaphore(this.parallelism, true);
+        }
+    }
+
+    public static class StagePermit implements AutoCloseable {
+        private final StageLimit limit;
+        private boolean closed = false;
+
+        private StagePermit(StageLimit limit) {
+            this.limit = limit;
+            limit.active.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                limit.active.decrementAndGet();
+                limit.semaphore.release();
+            }
+        }
+    }
+}
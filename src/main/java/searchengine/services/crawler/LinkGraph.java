@@ -0,0 +1,203 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * Граф ссылок между страницами сайта в формате CSR на примитивных массивах. Вершины - страницы,
+ * пронумерованные с 0; входящие ссылки вершины v - sources[offsets[v]..offsets[v + 1]).
+ * Ссылки страницы хранятся в БД как 64-битные отпечатки путей ({@link VisitedPaths#fingerprint(String)}),
+ * поэтому при обходе их не нужно сопоставлять с id страниц.
+ */
+public class LinkGraph {
+
+    private final int[] offsets;
+    private final int[] sources;
+    private final int[] outDegree;
+
+    private LinkGraph(int[] offsets, int[] sources, int[] outDegree) {
+        this.offsets = offsets;
+        this.sources = sources;
+        this.outDegree = outDegree;
+    }
+
+    public int getNodes() {
+        return outDegree.length;
+    }
+
+    public int getEdges() {
+        return sources.length;
+    }
+
+    /**
+     * Ссылки страницы в виде отпечатков путей по 8 байт, без ссылки на саму страницу.
+     */
+    public static byte[] encodeLinks(@NonNull Collection<String> paths, @NonNull String selfPath) {
+        var self = VisitedPaths.fingerprint(selfPath);
+        var buffer = ByteBuffer.allocate(paths.size() * Long.BYTES);
+        for (var path : paths) {
+            var fingerprint = VisitedPaths.fingerprint(path);
+            if (fingerprint != self) {
+                buffer.putLong(fingerprint);
+            }
+        }
+
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public static long[] decodeLinks(byte[] links) {
+        if (links == null) {
+            return new long[0];
+        }
+
+        var fingerprints = new long[links.length / Long.BYTES];
+        ByteBuffer.wrap(links).asLongBuffer().get(fingerprints);
+        return fingerprints;
+    }
+
+    /**
+     * Авторитетность вершин (PageRank) степенным методом. Вершины пересчитываются параллельно: каждая суммирует
+     * вклад своих входящих ссылок, поэтому потоки не пишут в общие ячейки. Вклад вершин без исходящих ссылок
+     * делится между всеми вершинами. Значения нормированы так, что среднее равно 1.
+     */
+    public double[] pageRank(double damping, int maxIterations, double tolerance) {
+        var nodes = getNodes();
+        var rank = new double[nodes];
+        if (nodes == 0) {
+            return rank;
+        }
+
+        Arrays.fill(rank, 1.0 / nodes);
+        var next = new double[nodes];
+        var contribution = new double[nodes];
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            final var current = rank;
+            final var updated = next;
+
+            IntStream.range(0, nodes).parallel()
+                    .forEach(u -> contribution[u] = outDegree[u] == 0 ? 0 : current[u] / outDegree[u]);
+            var dangling = IntStream.range(0, nodes).parallel()
+                    .filter(u -> outDegree[u] == 0)
+                    .mapToDouble(u -> current[u])
+                    .sum();
+            var base = (1 - damping) / nodes + damping * dangling / nodes;
+
+            IntStream.range(0, nodes).parallel().forEach(v -> {
+                var sum = 0.0;
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    sum += contribution[sources[i]];
+                }
+                updated[v] = base + damping * sum;
+            });
+
+            var delta = IntStream.range(0, nodes).parallel()
+                    .mapToDouble(v -> Math.abs(updated[v] - current[v]))
+                    .sum();
+
+            rank = updated;
+            next = current;
+            if (delta < tolerance) {
+                break;
+            }
+        }
+
+        for (int v = 0; v < nodes; v++) {
+            rank[v] *= nodes;
+        }
+
+        return rank;
+    }
+
+    /**
+     * Вершины получают номера в порядке добавления, затем добавляются ссылки между ними.
+     */
+    public static class Builder {
+        private final int maxNodes;
+        private final long[] keys; // Открытая хеш-таблица: отпечаток пути -> номер вершины
+        private final int[] values;
+        private int added = 0;
+
+        private int[] from = new int[1024];
+        private int[] to = new int[1024];
+        private int edges = 0;
+
+        public Builder(int maxNodes) {
+            this.maxNodes = maxNodes;
+            var capacity = Integer.highestOneBit(Math.max(maxNodes, 1) * 2 - 1) << 1;
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+        }
+
+        /**
+         * Возвращает номер вершины; повторный путь получает прежний номер.
+         */
+        public int addNode(@NonNull String path) {
+            var key = VisitedPaths.fingerprint(path);
+            var index = find(key);
+            if (keys[index] == 0) {
+                if (added >= maxNodes) {
+                    throw new IllegalStateException("Превышено число вершин графа: " + maxNodes);
+                }
+                keys[index] = key;
+                values[index] = added++;
+            }
+
+            return values[index];
+        }
+
+        public int nodeOf(long fingerprint) {
+            var index = find(fingerprint);
+            return keys[index] == 0 ? -1 : values[index];
+        }
+
+        public void addEdge(int source, int target) {
+            if (source == target) {
+                return;
+            }
+
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+            }
+            from[edges] = source;
+            to[edges] = target;
+            edges++;
+        }
+
+        // Сортировка ссылок подсчётом по вершине-цели
+        public LinkGraph build() {
+            var nodes = added;
+            var outDegree = new int[nodes];
+            var offsets = new int[nodes + 1];
+            for (int e = 0; e < edges; e++) {
+                outDegree[from[e]]++;
+                offsets[to[e] + 1]++;
+            }
+            for (int v = 0; v < nodes; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+
+            var sources = new int[edges];
+            var position = Arrays.copyOf(offsets, nodes);
+            for (int e = 0; e < edges; e++) {
+                sources[position[to[e]]++] = from[e];
+            }
+
+            return new LinkGraph(offsets, sources, outDegree);
+        }
+
+        private int find(long key) {
+            var mask = keys.length - 1;
+            var index = (int) key & mask;
+            while (keys[index] != 0 && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package searchengine.services.crawler;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchBot;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Общий для всех обходов бюджет памяти под обрабатываемые страницы (тело ответа, HTML и текст).
+ * Пока бюджет исчерпан, диспетчеры обходов не начинают обработку новых страниц.
+ * Занятый объём учитывается после загрузки, когда размер страницы известен, поэтому бюджет
+ * может быть превышен не больше чем на страницы, загружаемые в этот момент.
+ */
+@Component
+public class MemoryBudget {
+
+    private final long limit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long used = 0;
+
+    public MemoryBudget(SearchBot searchBot) {
+        this.limit = Math.max(searchBot.getMemoryBudget(), 1) * 1024L * 1024L;
+    }
+
+    /**
+     * Ожидает, пока занятый объём не станет меньше бюджета.
+     */
+    public void awaitAvailable() throws InterruptedException {
+        lock.lock();
+        try {
+            while (used >= limit) {
+                released.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void reserve(long bytes) {
+        lock.lock();
+        try {
+            used += bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            used -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
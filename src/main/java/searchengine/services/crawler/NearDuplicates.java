@@ -0,0 +1,144 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.SitesList;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.repository.PageRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Поиск почти одинаковых страниц сайта по SimHash-отпечаткам проиндексированных страниц.
+ * Отпечаток делится на 4 полосы по 16 бит: у отпечатков, отличающихся не более чем в 3 битах,
+ * хотя бы одна полоса совпадает, поэтому сравниваются только страницы с общей полосой.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NearDuplicates {
+
+    private static final int BANDS = 4;
+    private static final int BAND_BITS = 64 / BANDS;
+
+    private final SitesList sitesList;
+    private final PageRepository pageRepository;
+
+    private final Map<Integer, SiteFingerprints> sites = new ConcurrentHashMap<>();
+
+    /**
+     * Возвращает идентификатор проиндексированной страницы, почти полной копией которой является страница.
+     * Если такой нет, страница регистрируется как оригинал и возвращается {@code null}.
+     */
+    public Integer findOriginal(@NonNull Page page, long simHash) {
+        var fingerprints = getFingerprints(page.getSite());
+        var maxDistance = Math.min(sitesList.getNearDuplicateDistance(), BANDS - 1);
+
+        return fingerprints.findOrPut(page.getId(), simHash, maxDistance);
+    }
+
+    /**
+     * Страница больше не может быть оригиналом (удалена, недоступна или стала копией).
+     */
+    public void remove(@NonNull Page page) {
+        var fingerprints = sites.get(page.getSite().getId());
+        if (fingerprints != null) {
+            fingerprints.remove(page.getId());
+        }
+    }
+
+    public void forget(@NonNull Site site) {
+        sites.remove(site.getId());
+    }
+
+    private SiteFingerprints getFingerprints(Site site) {
+        var fingerprints = sites.get(site.getId());
+        if (fingerprints != null) {
+            return fingerprints;
+        }
+
+        var loaded = new SiteFingerprints();
+        for (var page : pageRepository.findFingerprintsBySite(site)) {
+            loaded.put(page.getId(), page.getSimHash());
+        }
+        log.info("{}: загружено {} отпечатков страниц", site.getUrl(), loaded.hashes.size());
+
+        fingerprints = sites.putIfAbsent(site.getId(), loaded);
+        return fingerprints == null ? loaded : fingerprints;
+    }
+
+    private static long bandKey(int band, long simHash) {
+        return ((long) band << BAND_BITS) | ((simHash >>> (band * BAND_BITS)) & 0xffff);
+    }
+
+    private static class SiteFingerprints {
+        private final Map<Integer, Long> hashes = new HashMap<>();
+        private final Map<Long, List<Integer>> bands = new HashMap<>();
+
+        private synchronized Integer findOrPut(int pageId, long simHash, int maxDistance) {
+            if (maxDistance >= 0) {
+                for (int band = 0; band < BANDS; band++) {
+                    var candidates = bands.get(bandKey(band, simHash));
+                    if (candidates == null) {
+                        continue;
+                    }
+
+                    for (var candidate : candidates) {
+                        var candidateHash = hashes.get(candidate);
+                        if (candidate != pageId && candidateHash != null
+                                && Long.bitCount(candidateHash ^ simHash) <= maxDistance) {
+                            remove(pageId);
+                            return candidate;
+                        }
+                    }
+                }
+            }
+
+            put(pageId, simHash);
+            return null;
+        }
+
+        private synchronized void put(int pageId, long simHash) {
+            var previous = hashes.put(pageId, simHash);
+            if (previous != null) {
+                if (previous == simHash) {
+                    return;
+                }
+                removeBands(pageId, previous);
+            }
+
+            for (int band = 0; band < BANDS; band++) {
+                bands.computeIfAbsent(bandKey(band, simHash), k -> new ArrayList<>(1)).add(pageId);
+            }
+        }
+
+        private synchronized void remove(int pageId) {
+            var previous = hashes.remove(pageId);
+            if (previous != null) {
+                removeBands(pageId, previous);
+            }
+        }
+
+        private void removeBands(int pageId, long simHash) {
+            for (int band = 0; band < BANDS; band++) {
+                var key = bandKey(band, simHash);
+                var pageIds = bands.get(key);
+                if (pageIds == null) {
+                    continue;
+                }
+
+                pageIds.remove(Integer.valueOf(pageId));
+                if (pageIds.isEmpty()) {
+                    bands.remove(key);
+                }
+            }
+        }
+    }
+}
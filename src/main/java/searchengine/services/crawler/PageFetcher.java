@@ -0,0 +1,271 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchBot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Загрузка страниц через общий {@link HttpClient}: соединения с хостами переиспользуются (HTTP/2 или keep-alive),
+ * тело запрашивается в сжатом виде (gzip/deflate) и распаковывается здесь же.
+ * Тело читается потоком с ограничением размера: ответы с ошибкой и неподходящим типом содержимого
+ * отбрасываются по заголовкам без загрузки тела, а слишком большие обрезаются или отбрасываются.
+ * Разбор ответа выполняется вызывающей стороной.
+ */
+@Slf4j
+@Component
+public class PageFetcher {
+
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+    private static final String ACCEPT = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+    private static final int MAX_RESOURCE_SIZE = 50 * 1024 * 1024; // robots.txt и sitemap (ограничение протокола sitemap)
+    private static final byte[] EMPTY = new byte[0];
+
+    private final SearchBot searchBot;
+    private final HttpClient httpClient;
+
+    public PageFetcher(SearchBot searchBot) {
+        this.searchBot = searchBot;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(searchBot.getConnectTimeout()))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    /**
+     * Загрузка служебного ресурса сайта (robots.txt, sitemap) любого типа содержимого.
+     */
+    public FetchResult fetch(@NonNull String url) throws IOException, InterruptedException {
+        var request = newRequest(url).GET().build();
+        return send(request, MAX_RESOURCE_SIZE, false, false);
+    }
+
+    /**
+     * Загрузка страницы. Условный запрос: при совпадении валидаторов сервер ответит 304 без тела.
+     * Тело ответа с ошибкой или неподдерживаемым типом содержимого не загружается.
+     */
+    public FetchResult fetchPage(@NonNull String url, String etag, String lastModified)
+            throws IOException, InterruptedException {
+        var builder = newRequest(url);
+        if (etag != null && !etag.isBlank()) {
+            builder.header("If-None-Match", etag);
+        }
+        if (lastModified != null && !lastModified.isBlank()) {
+            builder.header("If-Modified-Since", lastModified);
+        }
+
+        return send(builder.GET().build(), searchBot.getMaxPageSize(), searchBot.isTruncateLargePages(), true);
+    }
+
+    private FetchResult send(HttpRequest request, int maxBytes, boolean truncate, boolean pagesOnly)
+            throws IOException, InterruptedException {
+        HttpResponse.BodyHandler<Body> handler = info -> {
+            var contentType = FetchResult.parseContentType(info.headers().firstValue("Content-Type").orElse(null));
+            if (pagesOnly && (info.statusCode() >= 400 || !FetchResult.isSupportedContentType(contentType))) {
+                return new RejectingSubscriber();
+            }
+
+            return new LimitedSubscriber(maxBytes, truncate);
+        };
+
+        var response = httpClient.send(request, handler);
+        var body = decode(response.body(), response.headers().firstValue("Content-Encoding").orElse(""),
+                maxBytes, truncate);
+        if (body.truncated()) {
+            log.info("{}: тело ответа больше {} байт и {}", response.uri(), maxBytes,
+                    truncate ? "обрезано" : "отброшено");
+        }
+
+        return new FetchResult(response.uri(), response.statusCode(), response.headers(), body.bytes(),
+                body.truncated());
+    }
+
+    private HttpRequest.Builder newRequest(String url) {
+        var builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(searchBot.getReadTimeout()))
+                .header("Accept", ACCEPT)
+                .header("Accept-Encoding", ACCEPT_ENCODING);
+
+        if (searchBot.getUserAgent() != null) {
+            builder.header("User-Agent", searchBot.getUserAgent());
+        }
+        if (searchBot.getReferer() != null) {
+            builder.header("Referer", searchBot.getReferer());
+        }
+
+        return builder;
+    }
+
+    /**
+     * Распаковывает файл gzip (sitemap.xml.gz) с тем же ограничением размера, что и у служебных ресурсов.
+     * Возвращает {@code null}, если распакованный файл больше ограничения.
+     */
+    static byte[] gunzip(byte[] bytes) throws IOException {
+        var body = decode(new Body(bytes, false), "gzip", MAX_RESOURCE_SIZE, false);
+        return body.truncated() ? null : body.bytes();
+    }
+
+    // Распакованное тело также ограничивается maxBytes
+    private static Body decode(Body body, String contentEncoding, int maxBytes, boolean truncate) throws IOException {
+        var encoding = contentEncoding.strip().toLowerCase(Locale.ROOT);
+        if (body.bytes().length == 0 || encoding.isEmpty() || encoding.equals("identity")) {
+            return body;
+        }
+
+        var compressed = new ByteArrayInputStream(body.bytes());
+        InputStream stream = switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(compressed);
+            case "deflate" -> new InflaterInputStream(compressed);
+            default -> throw new IOException("Неподдерживаемое сжатие ответа: " + contentEncoding);
+        };
+
+        var output = new ByteArrayOutputStream();
+        var truncated = body.truncated();
+        var buffer = new byte[8192];
+        try (stream) {
+            int count;
+            while ((count = stream.read(buffer)) != -1) {
+                if (output.size() + count > maxBytes) {
+                    if (!truncate) {
+                        return new Body(EMPTY, true);
+                    }
+                    output.write(buffer, 0, maxBytes - output.size());
+                    truncated = true;
+                    break;
+                }
+                output.write(buffer, 0, count);
+            }
+        } catch (EOFException e) {
+            if (!body.truncated()) {
+                throw e;
+            }
+            // Сжатое тело обрезано при загрузке - остаётся то, что удалось распаковать
+        }
+
+        return new Body(output.toByteArray(), truncated);
+    }
+
+    private record Body(byte[] bytes, boolean truncated) {
+    }
+
+    /**
+     * Накапливает тело не больше maxBytes байт, после чего отменяет загрузку остатка.
+     */
+    private static class LimitedSubscriber implements HttpResponse.BodySubscriber<Body> {
+        private final int maxBytes;
+        private final boolean truncate;
+        private final CompletableFuture<Body> result = new CompletableFuture<>();
+        private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private Flow.Subscription subscription;
+
+        private LimitedSubscriber(int maxBytes, boolean truncate) {
+            this.maxBytes = maxBytes;
+            this.truncate = truncate;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            if (result.isDone()) {
+                return;
+            }
+
+            for (var buffer : buffers) {
+                var remaining = maxBytes - output.size();
+                if (buffer.remaining() > remaining) {
+                    if (truncate) {
+                        write(buffer, remaining);
+                        result.complete(new Body(output.toByteArray(), true));
+                    } else {
+                        result.complete(new Body(EMPTY, true));
+                    }
+                    subscription.cancel();
+                    return;
+                }
+                write(buffer, buffer.remaining());
+            }
+
+            subscription.request(1);
+        }
+
+        private void write(ByteBuffer buffer, int length) {
+            var bytes = new byte[length];
+            buffer.get(bytes);
+            output.write(bytes, 0, length);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(new Body(output.toByteArray(), false));
+        }
+
+        @Override
+        public CompletionStage<Body> getBody() {
+            return result;
+        }
+    }
+
+    /**
+     * Отменяет загрузку тела сразу после получения заголовков.
+     */
+    private static class RejectingSubscriber implements HttpResponse.BodySubscriber<Body> {
+        private final CompletableFuture<Body> result = new CompletableFuture<>();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+            result.complete(new Body(EMPTY, false));
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.complete(new Body(EMPTY, false));
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(new Body(EMPTY, false));
+        }
+
+        @Override
+        public CompletionStage<Body> getBody() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.PathRules;
+import searchengine.config.SitesList;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Отбор путей для обхода по шаблонам include/exclude и признакам ловушек: повторяющимся сегментам,
+ * слишком глубоким путям и слишком большому числу адресов одного вида (/calendar/2024/01, /catalog?color=red).
+ * Проверка выполняется до сохранения страницы, поэтому адреса ловушек не попадают в таблицу page.
+ * Признаки ловушек применяются только к новым адресам: страницы прошлых обходов исключаются из обхода
+ * (и удаляются) только шаблонами include/exclude.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PathFilter {
+
+    private static final int MAX_PLAIN_SEGMENT = 40; // Более длинные сегменты - идентификаторы, а не имена
+
+    private final SitesList sitesList;
+
+    public PathRules getRules(@NonNull String siteUrl) {
+        var settings = sitesList.findSite(siteUrl);
+        if (settings != null && settings.getPaths() != null) {
+            return settings.getPaths();
+        }
+
+        return sitesList.getPaths();
+    }
+
+    /**
+     * Учитывает новый путь обхода среди адресов его вида. Возвращает {@code false}, если адресов этого вида
+     * больше max-template-pages: остальные считаются ловушкой и не обходятся.
+     */
+    public boolean countTemplate(@NonNull SiteCrawl crawl, @NonNull String path) {
+        var limit = getRules(crawl.getSite().getUrl()).getMaxTemplatePages();
+        if (limit <= 0) {
+            return true;
+        }
+
+        var template = toTemplate(path);
+        var count = crawl.countTemplate(template);
+        if (count == limit + 1) {
+            log.info("{}: больше {} адресов вида {} - остальные не обходятся", crawl.getSite().getUrl(), limit,
+                    template);
+        }
+
+        return count <= limit;
+    }
+
+    static boolean isAllowed(String path, PathRules rules) {
+        if (!rules.getInclude().isEmpty() && !matchesAny(path, rules.getInclude())) {
+            return false;
+        }
+
+        return !matchesAny(path, rules.getExclude());
+    }
+
+    /**
+     * Путь похож на адрес ловушки: слишком много сегментов или повторяющиеся сегменты.
+     */
+    static boolean isTrap(String path, PathRules rules) {
+        var segments = splitSegments(path);
+        if (rules.getMaxSegments() > 0 && segments.length > rules.getMaxSegments()) {
+            return true;
+        }
+
+        if (rules.getMaxSegmentRepeats() > 0) {
+            var repeats = new HashMap<String, Integer>();
+            for (var segment : segments) {
+                if (repeats.merge(segment, 1, Integer::sum) > rules.getMaxSegmentRepeats()) {
+                    return true; // /a/b/a/b/a/b - относительная ссылка, разрастающаяся на каждой странице
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Вид адреса: сегменты с цифрами и длинные сегменты заменяются на «*», у параметров запроса остаются имена.
+     * Например, /calendar/2024/01?view=day и /calendar/2024/02?view=week - адреса одного вида.
+     */
+    static String toTemplate(String path) {
+        var queryIndex = path.indexOf('?');
+        var template = new StringBuilder(path.length());
+
+        for (var segment : splitSegments(path)) {
+            template.append('/').append(isVariable(segment) ? "*" : segment);
+        }
+        if (template.isEmpty()) {
+            template.append('/');
+        }
+
+        if (queryIndex != -1) {
+            var separator = '?';
+            for (var param : path.substring(queryIndex + 1).split("&")) {
+                if (param.isEmpty()) {
+                    continue;
+                }
+
+                var valueIndex = param.indexOf('=');
+                template.append(separator).append(valueIndex == -1 ? param : param.substring(0, valueIndex) + "=*");
+                separator = '&';
+            }
+        }
+
+        return template.toString();
+    }
+
+    private static String[] splitSegments(String path) {
+        var queryIndex = path.indexOf('?');
+        var pathPart = queryIndex == -1 ? path : path.substring(0, queryIndex);
+
+        return pathPart.chars().allMatch(c -> c == '/') ? new String[0] : pathPart.substring(1).split("/");
+    }
+
+    private static boolean isVariable(String segment) {
+        return segment.length() > MAX_PLAIN_SEGMENT || segment.chars().anyMatch(Character::isDigit);
+    }
+
+    private static boolean matchesAny(String path, List<String> patterns) {
+        for (var pattern : patterns) {
+            if (matches(path, pattern)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Сравнение без учёта регистра, «*» - любая последовательность символов
+    static boolean matches(String path, String pattern) {
+        int p = 0;
+        int s = 0;
+        int star = -1;
+        int mark = 0;
+
+        while (s < path.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = s;
+            } else if (p < pattern.length()
+                    && Character.toLowerCase(pattern.charAt(p)) == Character.toLowerCase(path.charAt(s))) {
+                p++;
+                s++;
+            } else if (star != -1) {
+                p = star + 1;
+                s = ++mark;
+            } else {
+                return false;
+            }
+        }
+
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+
+        return p == pattern.length();
+    }
+}
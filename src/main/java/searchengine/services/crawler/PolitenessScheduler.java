@@ -0,0 +1,358 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.RequestsInterval;
+import searchengine.config.SearchBot;
+import searchengine.config.SitesList;
+import searchengine.model.Site;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Планировщик вежливого обхода: выдаёт разрешения на сетевой запрос к хосту с учётом
+ * интервала между запросами и числа одновременных запросов (search-bot-settings или настройки сайта).
+ * Ожидание выполняется без захвата монитора сайта, поэтому разбор и сохранение уже загруженных страниц
+ * не блокируются.
+ * <p>
+ * При adaptive-concurrency число одновременных запросов подбирается по схеме AIMD: растёт на единицу
+ * за каждые {@code limit} быстрых ответов и уменьшается вдвое при ошибках сервера или задержке ответа
+ * больше target-latency. Интервал между запросами делится на текущее число запросов, но не бывает
+ * меньше Crawl-delay.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PolitenessScheduler {
+
+    private static final long MAX_BACKOFF_MS = Duration.ofMinutes(10).toMillis();
+    private static final long MIN_BACKOFF_MS = 1000;
+
+    private final SearchBot searchBot;
+    private final SitesList sitesList;
+
+    private final Random random = new Random();
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+    private final Map<String, Long> crawlDelays = new ConcurrentHashMap<>(); // Crawl-delay из robots.txt
+
+    /**
+     * Ожидает свободный слот хоста сайта. Полученное разрешение нужно закрыть после ответа сервера.
+     */
+    public FetchPermit acquire(@NonNull Site site) throws InterruptedException {
+        var host = getHost(site.getUrl());
+        var state = hosts.computeIfAbsent(host, h -> createHostState(site));
+
+        var limit = state.acquireSlot();
+        try {
+            var delay = state.reserve(getInterval(site, limit));
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+        } catch (InterruptedException e) {
+            state.releaseSlot();
+            throw e;
+        }
+
+        return new FetchPermit(host, state);
+    }
+
+    /**
+     * Задаёт минимальный интервал между запросами к хосту сайта (Crawl-delay из robots.txt).
+     */
+    public void setCrawlDelay(@NonNull String siteUrl, long crawlDelay) {
+        var host = getHost(siteUrl);
+        if (crawlDelay > 0) {
+            crawlDelays.put(host, crawlDelay);
+        } else {
+            crawlDelays.remove(host);
+        }
+    }
+
+    private HostState createHostState(Site site) {
+        var settings = sitesList.findSite(site.getUrl());
+        var initial = getInitialConcurrency(site);
+
+        if (!searchBot.isAdaptiveConcurrency()) {
+            return new HostState(initial, initial, initial, 0);
+        }
+
+        var max = settings != null && settings.getMaxConcurrency() != null
+                ? settings.getMaxConcurrency()
+                : searchBot.getMaxConcurrency();
+        max = Math.max(max, initial);
+
+        return new HostState(initial, 1, max, searchBot.getTargetLatency());
+    }
+
+    private int getInitialConcurrency(Site site) {
+        var settings = sitesList.findSite(site.getUrl());
+        if (settings != null && settings.getConcurrency() != null) {
+            return Math.max(settings.getConcurrency(), 1);
+        }
+
+        return Math.max(searchBot.getConcurrency(), 1);
+    }
+
+    private long getInterval(Site site, int concurrency) {
+        var settings = sitesList.findSite(site.getUrl());
+        var interval = settings != null && settings.getRequestsInterval() != null
+                ? settings.getRequestsInterval()
+                : searchBot.getRequestsInterval(); // Интервал миллисекунд
+
+        var crawlDelay = crawlDelays.getOrDefault(getHost(site.getUrl()), 0L);
+        var time = searchBot.isAdaptiveConcurrency() ? randomInterval(interval) / concurrency : randomInterval(interval);
+
+        return Math.max(time, crawlDelay);
+    }
+
+    private long randomInterval(RequestsInterval interval) {
+        if (interval == null) {
+            return 0;
+        }
+
+        var min = interval.getMin();
+        long time = min;
+        var max = interval.getMax();
+        if (max != null && max > min) {
+            time += random.nextInt(max - min + 1);
+        }
+
+        return time;
+    }
+
+    private static String getHost(String url) {
+        try {
+            var host = URI.create(url.strip()).getHost();
+            return host == null ? url : host.toLowerCase();
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return -1;
+        }
+
+        retryAfter = retryAfter.strip();
+        try {
+            return Long.parseLong(retryAfter) * 1000;
+        } catch (NumberFormatException e) {
+            try {
+                var date = ZonedDateTime.parse(retryAfter, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(Duration.between(ZonedDateTime.now(), date).toMillis(), 0);
+            } catch (Exception ignored) {
+                return -1;
+            }
+        }
+    }
+
+    private static class HostState {
+        private static final double LATENCY_WEIGHT = 0.2;
+
+        private final ReentrantLock lock = new ReentrantLock(); // Без монитора: ожидают виртуальные потоки
+        private final Condition slotReleased = lock.newCondition();
+        private final int minLimit;
+        private final int maxLimit;
+        private final long targetLatency; // 0 - число запросов не подбирается
+
+        private double limit;
+        private int inFlight = 0;
+        private double latency = -1; // Сглаженное время ответа, миллисекунд
+        private long lastDecreaseTime = 0;
+
+        private long nextRequestTime = 0; // Время, раньше которого нельзя начинать следующий запрос
+        private long backoff = 0;
+
+        private HostState(int initialLimit, int minLimit, int maxLimit, long targetLatency) {
+            this.limit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.targetLatency = targetLatency;
+        }
+
+        /**
+         * Ожидает свободный слот и возвращает текущее число одновременных запросов.
+         */
+        private int acquireSlot() throws InterruptedException {
+            lock.lock();
+            try {
+                while (inFlight >= (int) limit) {
+                    slotReleased.await();
+                }
+                inFlight++;
+
+                return (int) limit;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void releaseSlot() {
+            lock.lock();
+            try {
+                inFlight--;
+                slotReleased.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Учитывает ответ: аддитивное увеличение числа запросов при быстрых ответах,
+         * уменьшение вдвое (не чаще одного раза за время ответа) при перегрузке сервера.
+         */
+        private void onResponse(String host, long responseTime, boolean overloaded) {
+            if (targetLatency <= 0) {
+                return;
+            }
+
+            lock.lock();
+            try {
+                latency = latency < 0 ? responseTime : latency * (1 - LATENCY_WEIGHT) + responseTime * LATENCY_WEIGHT;
+
+                var previous = (int) limit;
+                var now = System.currentTimeMillis();
+                if (overloaded || latency > targetLatency) {
+                    if (now - lastDecreaseTime > Math.max((long) latency, MIN_BACKOFF_MS)) {
+                        limit = Math.max(limit / 2, minLimit);
+                        lastDecreaseTime = now;
+                    }
+                } else {
+                    limit = Math.min(limit + 1 / limit, maxLimit);
+                }
+
+                var current = (int) limit;
+                if (current > previous) {
+                    slotReleased.signalAll();
+                }
+                if (current != previous) {
+                    log.debug("{}: одновременных запросов {}, время ответа {} мс.", host, current, (long) latency);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Резервирует время начала запроса и возвращает задержку до него.
+         */
+        private long reserve(long interval) {
+            lock.lock();
+            try {
+                var now = System.currentTimeMillis();
+                var start = Math.max(now, nextRequestTime);
+                nextRequestTime = start + interval;
+
+                return start - now;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long postpone(long retryAfter) {
+            lock.lock();
+            try {
+                if (retryAfter < 0) {
+                    backoff = backoff == 0 ? MIN_BACKOFF_MS : Math.min(backoff * 2, MAX_BACKOFF_MS);
+                    retryAfter = backoff;
+                }
+
+                retryAfter = Math.min(retryAfter, MAX_BACKOFF_MS);
+                nextRequestTime = Math.max(nextRequestTime, System.currentTimeMillis() + retryAfter);
+
+                return retryAfter;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void resetBackoff() {
+            lock.lock();
+            try {
+                backoff = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Разрешение на один запрос к хосту.
+     */
+    public static class FetchPermit implements AutoCloseable {
+        private final String host;
+        private final HostState state;
+        private volatile long startTime = System.currentTimeMillis();
+        private boolean reported = false;
+        private boolean released = false;
+
+        private FetchPermit(String host, HostState state) {
+            this.host = host;
+            this.state = state;
+        }
+
+        /**
+         * Запрос отправляется: время ответа отсчитывается с этого момента, без ожиданий после получения разрешения.
+         */
+        public void startRequest() {
+            startTime = System.currentTimeMillis();
+        }
+
+        /**
+         * Учитывает ответ сервера: при 429/503 откладывает следующие запросы к хосту
+         * на время из Retry-After или на экспоненциально растущую паузу.
+         */
+        public void report(int statusCode, String retryAfter) {
+            reported = true;
+            state.onResponse(host, System.currentTimeMillis() - startTime, isOverloaded(statusCode));
+
+            if (statusCode == 429 || statusCode == 503) {
+                var delay = state.postpone(parseRetryAfter(retryAfter));
+                log.info("{} ответил {}, запросы приостановлены на {} мс.", host, statusCode, delay);
+            } else if (statusCode > 0 && !isOverloaded(statusCode)) {
+                state.resetBackoff();
+            }
+        }
+
+        // 501 Not Implemented - постоянная ошибка запроса, а не признак нагрузки на сервер
+        private static boolean isOverloaded(int statusCode) {
+            return statusCode == 429 || (statusCode >= 500 && statusCode != 501);
+        }
+
+        /**
+         * Освобождает слот запроса, прерванного отменой обхода: ответа не было не по вине сервера,
+         * поэтому число одновременных запросов к хосту не меняется.
+         */
+        public synchronized void abandon() {
+            if (!released) {
+                released = true;
+                state.releaseSlot();
+            }
+        }
+
+        /**
+         * Освобождает слот. Запрос без ответа (тайм-аут, обрыв соединения) считается признаком перегрузки.
+         */
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                if (!reported) {
+                    state.onResponse(host, System.currentTimeMillis() - startTime, true);
+                }
+                state.releaseSlot();
+            }
+        }
+    }
+}
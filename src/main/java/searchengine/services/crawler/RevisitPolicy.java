@@ -0,0 +1,48 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.RevisitSettings;
+import searchengine.config.SitesList;
+import searchengine.model.Page;
+
+import java.time.LocalDateTime;
+
+/**
+ * Интервал повторного посещения страницы: сокращается вдвое, если страница изменилась с прошлого посещения,
+ * и увеличивается в полтора раза, если не изменилась. Часто меняющиеся страницы посещаются чаще,
+ * стабильные - всё реже, вплоть до max-interval.
+ */
+@Component
+@RequiredArgsConstructor
+public class RevisitPolicy {
+
+    private final SitesList sitesList;
+
+    /**
+     * Задаёт странице интервал и время следующего посещения.
+     *
+     * @param changed изменилось ли содержимое; {@code null} - страница посещена впервые
+     */
+    public void schedule(@NonNull Page page, Boolean changed) {
+        var interval = nextInterval(page.getRevisitInterval(), changed, sitesList.getRevisit());
+        page.setRevisitInterval(interval);
+        page.setNextVisit(LocalDateTime.now().plusMinutes(interval));
+    }
+
+    static int nextInterval(Integer interval, Boolean changed, RevisitSettings settings) {
+        long next;
+        if (interval == null || changed == null) {
+            next = settings.getInitialInterval();
+        } else if (changed) {
+            next = interval / 2;
+        } else {
+            next = interval + interval / 2;
+        }
+
+        var min = Math.max(settings.getMinInterval(), 1);
+        var max = Math.max(settings.getMaxInterval(), min);
+        return (int) Math.min(Math.max(next, min), max);
+    }
+}
@@ -0,0 +1,216 @@
+package searchengine.services.crawler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchBot;
+import searchengine.config.SitesList;
+import searchengine.model.IndexingStatus;
+import searchengine.model.Site;
+import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновый повторный обход проиндексированных сайтов. Периодически выбирает страницы, время следующего
+ * посещения которых наступило ({@link RevisitPolicy}), и посещает их в пределах бюджета загрузок сайта в час.
+ * Страницы, у которых lastmod в sitemap новее последнего посещения, посещаются в первую очередь.
+ * При совместной индексации сайт посещает узел, получивший его аренду.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RevisitScheduler {
+
+    private static final int UPDATE_BATCH_SIZE = 500;
+
+    private final SitesList sitesList;
+    private final SearchBot searchBot;
+    private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final CrawlEngine crawlEngine;
+    private final RobotsCache robotsCache;
+    private final SitemapReader sitemapReader;
+    private final UrlCanonicalizer urlCanonicalizer;
+    private final CrawlLeases crawlLeases;
+
+    private final Map<Integer, Revisit> running = new ConcurrentHashMap<>();
+    private final Map<Integer, SiteBudget> budgets = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> sitemapsChecked = new ConcurrentHashMap<>(); // Время чтения sitemap, мс
+    private int suspensions = 0; // Число запущенных индексаций, на время которых повторный обход остановлен
+
+    @Scheduled(initialDelayString = "${indexing-settings.revisit.check-interval:60000}",
+            fixedDelayString = "${indexing-settings.revisit.check-interval:60000}")
+    public synchronized void revisit() {
+        if (!sitesList.getRevisit().isEnabled() || suspensions > 0 || sitesList.getSites() == null) {
+            return;
+        }
+
+        var urls = sitesList.getSites().stream().map(searchengine.config.Site::getUrl).toList();
+        for (var site : siteRepository.findByStatusAndUrlIn(IndexingStatus.INDEXED, urls)) {
+            if (running.containsKey(site.getId())) {
+                continue;
+            }
+
+            var perHour = getPagesPerHour(site);
+            var budget = budgets.computeIfAbsent(site.getId(), id -> new SiteBudget(perHour));
+            var pages = budget.available(perHour);
+            if (pages > 0) {
+                start(site, budget, pages);
+            }
+        }
+    }
+
+    /**
+     * Останавливает повторные обходы и не запускает новые до {@link #resume()}.
+     * Вызывается перед полной индексацией, которая обновляет те же сайты.
+     */
+    public synchronized void suspend() {
+        suspensions++;
+        running.values().forEach(revisit -> revisit.crawl().cancel());
+
+        for (var revisit : new ArrayList<>(running.values())) {
+            try {
+                revisit.thread().join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public synchronized void resume() {
+        suspensions = Math.max(suspensions - 1, 0);
+    }
+
+    private void start(Site site, SiteBudget budget, int pages) {
+        var rootPage = pageRepository.findBySiteAndPath(site, "/");
+        if (rootPage == null || !crawlLeases.acquire(site.getUrl())) {
+            return;
+        }
+        rootPage.setSite(site);
+
+        var crawl = crawlEngine.createRevisitCrawl(rootPage, pages);
+        var thread = Thread.ofVirtual()
+                .name("revisit-" + site.getUrl())
+                .unstarted(() -> {
+                    var launched = false;
+                    try {
+                        markChangedInSitemap(site);
+
+                        var duePages = pageRepository.findDueForRevisit(site, LocalDateTime.now(),
+                                PageRequest.of(0, pages));
+                        if (duePages.isEmpty() || crawl.isStopped()) {
+                            return;
+                        }
+
+                        crawlEngine.revisit(crawl, duePages);
+                        launched = true;
+                        crawl.awaitCompletion();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        log.error("{}: ошибка повторного обхода - {}", site.getUrl(), e.getLocalizedMessage());
+                    } finally {
+                        if (launched) {
+                            budget.spend(crawl.getAdmittedPages().get() - 1); // Без главной страницы обхода
+                        }
+                        running.remove(site.getId());
+                        crawlLeases.release(site.getUrl());
+                    }
+                });
+
+        running.put(site.getId(), new Revisit(crawl, thread));
+        thread.start();
+    }
+
+    /**
+     * Страницы, у которых lastmod в sitemap новее последнего посещения, получают время следующего посещения
+     * в прошлом, поэтому выбираются раньше остальных. Sitemap читается не чаще min-interval.
+     */
+    private void markChangedInSitemap(Site site) throws InterruptedException {
+        var settings = sitesList.getRevisit();
+        var now = System.currentTimeMillis();
+        var checked = sitemapsChecked.get(site.getId());
+        if (!searchBot.isUseSitemaps()
+                || (checked != null && now - checked < TimeUnit.MINUTES.toMillis(settings.getMinInterval()))) {
+            return;
+        }
+        sitemapsChecked.put(site.getId(), now);
+
+        var rules = robotsCache.getRules(site);
+        var lastmods = new HashMap<String, Long>();
+        for (var entry : sitemapReader.read(site, rules.getSitemaps())) {
+            var path = entry.lastModified() > 0 ? urlCanonicalizer.canonicalize(site.getUrl(), null, entry.url()) : null;
+            if (path != null) {
+                lastmods.merge(path, entry.lastModified(), Math::max);
+            }
+        }
+        if (lastmods.isEmpty()) {
+            return;
+        }
+
+        var changedIds = new ArrayList<Integer>();
+        for (var page : pageRepository.findPathsBySite(site)) {
+            var path = urlCanonicalizer.canonicalize(site.getUrl(), null, page.getPath());
+            var lastmod = path == null ? null : lastmods.get(path);
+            if (lastmod != null && (page.getLastCrawled() == null
+                    || lastmod > page.getLastCrawled().atZone(ZoneId.systemDefault()).toEpochSecond())) {
+                changedIds.add(page.getId());
+            }
+        }
+
+        var urgent = LocalDateTime.now().minusMinutes(settings.getMaxInterval());
+        for (int from = 0; from < changedIds.size(); from += UPDATE_BATCH_SIZE) {
+            List<Integer> batch = changedIds.subList(from, Math.min(from + UPDATE_BATCH_SIZE, changedIds.size()));
+            pageRepository.updateNextVisit(batch, urgent);
+        }
+        log.info("{}: по sitemap изменились {} страниц", site.getUrl(), changedIds.size());
+    }
+
+    private int getPagesPerHour(Site site) {
+        var settings = sitesList.findSite(site.getUrl());
+        if (settings != null && settings.getRevisitPagesPerHour() != null) {
+            return settings.getRevisitPagesPerHour();
+        }
+
+        return sitesList.getRevisit().getPagesPerHour();
+    }
+
+    private record Revisit(SiteCrawl crawl, Thread thread) {
+    }
+
+    /**
+     * Бюджет загрузок сайта: пополняется равномерно до числа загрузок в час.
+     */
+    private static class SiteBudget {
+        private double pages;
+        private long refilled = System.currentTimeMillis();
+
+        private SiteBudget(int perHour) {
+            this.pages = perHour;
+        }
+
+        private synchronized int available(int perHour) {
+            var now = System.currentTimeMillis();
+            pages = Math.min(perHour, pages + perHour * (now - refilled) / (double) TimeUnit.HOURS.toMillis(1));
+            refilled = now;
+
+            return (int) pages;
+        }
+
+        private synchronized void spend(int count) {
+            pages -= Math.max(count, 0);
+        }
+    }
+}
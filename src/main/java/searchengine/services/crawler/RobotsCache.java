@@ -0,0 +1,82 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchBot;
+import searchengine.model.Site;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Кеш robots.txt сайтов. Правила загружаются при первом обращении и обновляются раз в сутки,
+ * Crawl-delay передаётся в {@link PolitenessScheduler}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RobotsCache {
+
+    private static final long TTL_MS = Duration.ofHours(24).toMillis();
+
+    private final SearchBot searchBot;
+    private final PageFetcher pageFetcher;
+    private final PolitenessScheduler politenessScheduler;
+
+    private final Map<String, CachedRules> cache = new ConcurrentHashMap<>();
+
+    public RobotsRules getRules(@NonNull Site site) throws InterruptedException {
+        var key = site.getUrl().toLowerCase();
+        var cached = cache.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt < TTL_MS) {
+            return cached.rules;
+        }
+
+        var rules = load(site);
+        cache.put(key, new CachedRules(rules, System.currentTimeMillis()));
+        politenessScheduler.setCrawlDelay(site.getUrl(), rules.getCrawlDelay());
+
+        return rules;
+    }
+
+    public static String getRootUrl(String siteUrl) {
+        var uri = URI.create(siteUrl.strip());
+        var port = uri.getPort() == -1 ? "" : ":" + uri.getPort();
+
+        return uri.getScheme() + "://" + uri.getHost() + port;
+    }
+
+    // Недоступный robots.txt не ограничивает обход
+    private RobotsRules load(Site site) throws InterruptedException {
+        var url = getRootUrl(site.getUrl()) + "/robots.txt";
+
+        try (var permit = politenessScheduler.acquire(site)) {
+            var response = pageFetcher.fetch(url);
+            permit.report(response.getStatusCode(), response.header("Retry-After"));
+
+            if (response.getStatusCode() != 200) {
+                log.info("{}: robots.txt недоступен (HTTP {})", site.getUrl(), response.getStatusCode());
+                return RobotsRules.ALLOW_ALL;
+            }
+
+            var charset = response.getCharset() == null ? StandardCharsets.UTF_8 : response.getCharset();
+            var rules = RobotsRules.parse(new String(response.getBody(), charset), searchBot.getUserAgent());
+            log.info("{}: загружен robots.txt, Crawl-delay {} мс., sitemap: {}", site.getUrl(),
+                    rules.getCrawlDelay(), rules.getSitemaps());
+
+            return rules;
+        } catch (IOException | IllegalArgumentException e) {
+            log.info("{}: не удалось загрузить robots.txt - {}", site.getUrl(), e.getLocalizedMessage());
+            return RobotsRules.ALLOW_ALL;
+        }
+    }
+
+    private record CachedRules(RobotsRules rules, long loadedAt) {
+    }
+}
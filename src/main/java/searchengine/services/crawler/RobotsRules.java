@@ -0,0 +1,187 @@
+package searchengine.services.crawler;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Правила robots.txt для user-agent бота: Allow/Disallow, Crawl-delay и ссылки на sitemap.
+ * Для пути применяется самое длинное совпавшее правило, при равной длине Allow важнее Disallow.
+ */
+public class RobotsRules {
+
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(Collections.emptyList(), -1, Collections.emptyList());
+
+    private final List<Rule> rules;
+    @Getter
+    private final long crawlDelay; // Миллисекунд, -1 - не задан
+    @Getter
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, long crawlDelay, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelay = crawlDelay;
+        this.sitemaps = sitemaps;
+    }
+
+    public boolean isAllowed(@NonNull String path) {
+        return isAllowed(path, false);
+    }
+
+    /**
+     * @param path       путь относительно корня хоста
+     * @param ignoreCase правила сравниваются без учёта регистра - для сайтов, пути которых приводятся к нижнему регистру
+     */
+    public boolean isAllowed(@NonNull String path, boolean ignoreCase) {
+        Rule matched = null;
+
+        for (var rule : rules) {
+            if (!rule.matches(path, ignoreCase)) {
+                continue;
+            }
+            if (matched == null || rule.length > matched.length
+                    || (rule.length == matched.length && rule.allow && !matched.allow)) {
+                matched = rule;
+            }
+        }
+
+        return matched == null || matched.allow;
+    }
+
+    public static RobotsRules parse(@NonNull String robotsTxt, String userAgent) {
+        var agent = userAgent == null ? "" : userAgent.toLowerCase(Locale.ROOT);
+
+        var sitemaps = new ArrayList<String>();
+        var groups = new ArrayList<Group>();
+        Group current = null;
+        var groupHasRules = false;
+
+        for (var line : robotsTxt.split("\\r?\\n|\\r")) {
+            var commentIndex = line.indexOf('#');
+            if (commentIndex != -1) {
+                line = line.substring(0, commentIndex);
+            }
+
+            var separatorIndex = line.indexOf(':');
+            if (separatorIndex == -1) {
+                continue;
+            }
+
+            var key = line.substring(0, separatorIndex).strip().toLowerCase(Locale.ROOT);
+            var value = line.substring(separatorIndex + 1).strip();
+
+            switch (key) {
+                case "user-agent" -> {
+                    // Несколько строк User-agent подряд относятся к одной группе
+                    if (current == null || groupHasRules) {
+                        current = new Group();
+                        groups.add(current);
+                        groupHasRules = false;
+                    }
+                    current.agents.add(value.toLowerCase(Locale.ROOT));
+                }
+                case "allow", "disallow" -> {
+                    if (current == null) {
+                        continue;
+                    }
+                    groupHasRules = true;
+                    if (!value.isEmpty()) {
+                        current.rules.add(new Rule(value, key.equals("allow")));
+                    }
+                }
+                case "crawl-delay" -> {
+                    if (current == null) {
+                        continue;
+                    }
+                    groupHasRules = true;
+                    try {
+                        current.crawlDelay = Math.round(Double.parseDouble(value) * 1000);
+                    } catch (NumberFormatException ignored) {
+                        // Некорректное значение игнорируется
+                    }
+                }
+                case "sitemap" -> {
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+
+        var group = selectGroup(groups, agent);
+        if (group == null) {
+            return new RobotsRules(Collections.emptyList(), -1, sitemaps);
+        }
+
+        return new RobotsRules(group.rules, group.crawlDelay, sitemaps);
+    }
+
+    // Группа с самым длинным совпавшим именем агента, иначе группа «*»
+    private static Group selectGroup(List<Group> groups, String agent) {
+        Group selected = null;
+        var selectedLength = -1;
+
+        for (var group : groups) {
+            for (var name : group.agents) {
+                var length = name.equals("*") ? 0 : (!agent.isEmpty() && agent.contains(name) ? name.length() : -1);
+                if (length > selectedLength) {
+                    selected = group;
+                    selectedLength = length;
+                }
+            }
+        }
+
+        return selected;
+    }
+
+    private static class Group {
+        private final List<String> agents = new ArrayList<>();
+        private final List<Rule> rules = new ArrayList<>();
+        private long crawlDelay = -1;
+    }
+
+    private static class Rule {
+        private final Pattern pattern;
+        private final Pattern ignoreCasePattern;
+        private final int length;
+        private final boolean allow;
+
+        private Rule(String value, boolean allow) {
+            this.length = value.length();
+            this.allow = allow;
+
+            var anchored = value.endsWith("$");
+            if (anchored) {
+                value = value.substring(0, value.length() - 1);
+            }
+
+            var regex = new StringBuilder();
+            var parts = value.split("\\*", -1);
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    regex.append(".*");
+                }
+                if (!parts[i].isEmpty()) {
+                    regex.append(Pattern.quote(parts[i]));
+                }
+            }
+            if (anchored) {
+                regex.append('$');
+            }
+
+            this.pattern = Pattern.compile(regex.toString());
+            this.ignoreCasePattern = Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        }
+
+        private boolean matches(String path, boolean ignoreCase) {
+            return (ignoreCase ? ignoreCasePattern : pattern).matcher(path).lookingAt();
+        }
+    }
+}
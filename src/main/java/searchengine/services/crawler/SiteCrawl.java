@@ -0,0 +1,291 @@
+package searchengine.services.crawler;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import searchengine.model.Page;
+import searchengine.model.Site;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Обход одного сайта: очередь ещё не обработанных страниц (frontier) и счётчик страниц,
+ * которые находятся в очереди или обрабатываются в данный момент.
+ * Обход завершён, когда очередь пуста и ни одна страница не обрабатывается.
+ * Страницы с большим приоритетом (например, свежий lastmod из sitemap) выдаются раньше,
+ * при равном приоритете - в порядке постановки в очередь.
+ * В очереди хранятся только идентификаторы и глубина страниц: страница загружается из БД
+ * при обработке, поэтому память не растёт с размером очереди.
+ * Страницы с временной ошибкой ожидают повторной попытки в отдельной очереди и возвращаются
+ * в основную по истечении паузы.
+ * При отмене прерываются потоки, которые ждут сеть, паузу между запросами или место в очереди;
+ * запись в БД не прерывается, задачи страниц сами проверяют отмену между шагами.
+ */
+@Getter
+public class SiteCrawl {
+
+    public static final long DEFAULT_PRIORITY = 0;
+
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final Site site;
+    private final Page rootPage;
+
+    private final BlockingQueue<QueuedPage> frontier = new PriorityBlockingQueue<>(64, QueuedPage.ORDER);
+    private final DelayQueue<RetryPage> retries = new DelayQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger pendingPages = new AtomicInteger();
+    private final VisitedPaths visited = new VisitedPaths(); // Пути, уже поставленные в очередь
+    private final int concurrency;
+    private final Semaphore slots;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private final int maxPages;
+    private final int maxDepth;
+    private final AtomicInteger admittedPages = new AtomicInteger(); // Страницы, поставленные в очередь обходом
+    private final Map<String, AtomicInteger> templates = new ConcurrentHashMap<>(); // Число адресов каждого вида
+    private volatile boolean truncated = false; // Обход остановлен по ограничению числа страниц
+
+    private final AtomicInteger finishedPages = new AtomicInteger();
+    private final AtomicInteger failedPages = new AtomicInteger(); // Страницы, не обработанные из-за ошибок
+
+    private volatile boolean cancelled = false;
+    private final Set<Thread> interruptible = new HashSet<>(); // Потоки, которые можно прервать при отмене
+
+    @Setter
+    private volatile RobotsRules robotsRules = RobotsRules.ALLOW_ALL;
+
+    public SiteCrawl(@NonNull Page rootPage, int concurrency) {
+        this(rootPage, concurrency, null, null);
+    }
+
+    /**
+     * @param maxPages наибольшее число страниц обхода, {@code null} - без ограничения
+     * @param maxDepth наибольшая глубина страниц от главной, {@code null} - без ограничения
+     */
+    public SiteCrawl(@NonNull Page rootPage, int concurrency, Integer maxPages, Integer maxDepth) {
+        this.site = rootPage.getSite();
+        this.rootPage = rootPage;
+        this.concurrency = Math.max(concurrency, 1);
+        this.slots = new Semaphore(this.concurrency);
+        this.maxPages = maxPages == null ? Integer.MAX_VALUE : Math.max(maxPages, 1);
+        this.maxDepth = maxDepth == null ? Integer.MAX_VALUE : Math.max(maxDepth, 0);
+
+        visited.claim(rootPage.getPath());
+        admittedPages.incrementAndGet();
+    }
+
+    public void enqueue(@NonNull Page page) {
+        enqueue(page, DEFAULT_PRIORITY);
+    }
+
+    public void enqueue(@NonNull Page page, long priority) {
+        enqueue(page.getId(), page.getDepth(), priority);
+    }
+
+    void enqueue(int pageId, int depth, long priority) {
+        pendingPages.incrementAndGet();
+        frontier.add(new QueuedPage(pageId, depth, priority, sequence.getAndIncrement(), 0));
+    }
+
+    /**
+     * Ставит страницу в очередь повторно по истечении паузы.
+     *
+     * @param attempt номер повторной попытки, начиная с 1
+     */
+    public void retry(@NonNull Page page, int attempt, long delayMs) {
+        pendingPages.incrementAndGet();
+        var queued = new QueuedPage(page.getId(), page.getDepth(), DEFAULT_PRIORITY, sequence.getAndIncrement(),
+                attempt);
+        retries.add(new RetryPage(queued, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs)));
+    }
+
+    /**
+     * Учитывает результат обработки страницы.
+     * Возвращает {@code true}, если после обработки minPages страниц доля ошибок превысила maxErrorRate.
+     */
+    public boolean countPage(boolean failed, double maxErrorRate, int minPages) {
+        var finished = finishedPages.incrementAndGet();
+        var failures = failed ? failedPages.incrementAndGet() : failedPages.get();
+
+        return failed && finished >= minPages && failures > finished * maxErrorRate;
+    }
+
+    public void enqueue(@NonNull Collection<Page> pages) {
+        enqueue(pages, DEFAULT_PRIORITY);
+    }
+
+    public void enqueue(@NonNull Collection<Page> pages, long priority) {
+        pages.forEach(page -> enqueue(page.getId(), page.getDepth(), priority));
+    }
+
+    /**
+     * Учитывает адрес вида template (см. {@link PathFilter}) и возвращает число адресов этого вида.
+     */
+    public int countTemplate(@NonNull String template) {
+        return templates.computeIfAbsent(template, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    /**
+     * Резервирует место для страницы в ограничении числа страниц обхода.
+     * Если страница не будет поставлена в очередь, место нужно вернуть {@link #releasePage()}.
+     */
+    public boolean reservePage() {
+        if (admittedPages.incrementAndGet() > maxPages) {
+            admittedPages.decrementAndGet();
+            truncated = true;
+            return false;
+        }
+        return true;
+    }
+
+    public void releasePage() {
+        admittedPages.decrementAndGet();
+    }
+
+    /**
+     * Учитывает страницы, поставленные в очередь до перезапуска обхода.
+     */
+    void countAdmitted(int pages) {
+        admittedPages.addAndGet(pages);
+    }
+
+    public boolean isWithinDepth(int depth) {
+        return depth <= maxDepth;
+    }
+
+    /**
+     * Регистрирует работу вне очереди (например, чтение sitemap), до завершения которой обход не заканчивается.
+     * По окончании нужно вызвать {@link #pageDone()}.
+     */
+    public void beginWork() {
+        pendingPages.incrementAndGet();
+    }
+
+    /**
+     * Следующая страница для обработки.
+     * Возвращает {@code null}, если обход завершён или отменён.
+     */
+    QueuedPage next() throws InterruptedException {
+        while (!isStopped()) {
+            for (var retry = retries.poll(); retry != null; retry = retries.poll()) {
+                frontier.add(retry.queued());
+            }
+
+            var queued = frontier.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (queued != null) {
+                return queued;
+            }
+            if (pendingPages.get() == 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Вызывается задачей страницы после того, как найденные на ней ссылки поставлены в очередь.
+     */
+    public void pageDone() {
+        pendingPages.decrementAndGet();
+    }
+
+    void acquireSlot() throws InterruptedException {
+        slots.acquire();
+    }
+
+    void releaseSlot() {
+        slots.release();
+    }
+
+    void awaitInFlight() {
+        slots.acquireUninterruptibly(concurrency);
+        slots.release(concurrency);
+    }
+
+    /**
+     * Текущий поток переходит к ожиданию (сетевой запрос, пауза, очередь), которое отмена обхода прерывает.
+     * После ожидания нужно вызвать {@link #exitInterruptible()}.
+     */
+    public void enterInterruptible() {
+        synchronized (interruptible) {
+            interruptible.add(Thread.currentThread());
+            if (cancelled) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Прерывание, полученное от отмены, сбрасывается: дальнейшие шаги (запись в БД) выполняются без него
+     * и сами проверяют отмену.
+     */
+    public void exitInterruptible() {
+        synchronized (interruptible) {
+            if (interruptible.remove(Thread.currentThread()) && cancelled) {
+                Thread.interrupted();
+            }
+        }
+    }
+
+    public boolean isStopped() {
+        return cancelled || site.indexingFailed();
+    }
+
+    public void cancel() {
+        cancelled = true;
+        frontier.clear();
+        retries.clear();
+
+        synchronized (interruptible) {
+            interruptible.forEach(Thread::interrupt);
+        }
+    }
+
+    public boolean isDone() {
+        return completion.isDone();
+    }
+
+    public void awaitCompletion() {
+        completion.exceptionally(e -> null).join();
+    }
+
+    void complete() {
+        completion.complete(null);
+    }
+
+    /**
+     * @param attempt номер повторной попытки, 0 - первая загрузка
+     */
+    record QueuedPage(int pageId, int depth, long priority, long sequence, int attempt) {
+        private static final Comparator<QueuedPage> ORDER = Comparator
+                .comparingLong((QueuedPage queued) -> -queued.priority)
+                .thenComparingLong(queued -> queued.sequence);
+    }
+
+    private record RetryPage(QueuedPage queued, long readyAt) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(readyAt, ((RetryPage) other).readyAt);
+        }
+    }
+}
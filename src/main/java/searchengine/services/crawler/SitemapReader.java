@@ -0,0 +1,137 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.parser.Parser;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchBot;
+import searchengine.model.Site;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Чтение sitemap.xml и индексов sitemap. Возвращает адреса страниц с временем lastmod,
+ * которое используется как приоритет в очереди обхода.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SitemapReader {
+
+    private static final int MAX_SITEMAPS = 100;
+
+    private final SearchBot searchBot;
+    private final PageFetcher pageFetcher;
+    private final PolitenessScheduler politenessScheduler;
+
+    /**
+     * @param sitemapUrls адреса из robots.txt; если их нет, читается /sitemap.xml
+     */
+    public List<Entry> read(@NonNull Site site, @NonNull List<String> sitemapUrls) throws InterruptedException {
+        var limit = searchBot.getSitemapLimit();
+        var entries = new ArrayList<Entry>();
+
+        var queue = new ArrayDeque<String>(sitemapUrls);
+        if (queue.isEmpty()) {
+            queue.add(RobotsCache.getRootUrl(site.getUrl()) + "/sitemap.xml");
+        }
+        var seen = new HashSet<String>(queue);
+        var fetched = 0;
+
+        while (!queue.isEmpty() && fetched < MAX_SITEMAPS && entries.size() < limit && !site.indexingFailed()) {
+            var url = queue.poll();
+            // Sitemap другого хоста не загружается: запрос учитывался бы в ограничениях хоста сайта
+            if (!UrlCanonicalizer.isSiteHost(site.getUrl(), url)) {
+                log.info("{}: sitemap {} на другом хосте пропущен", site.getUrl(), url);
+                continue;
+            }
+            fetched++;
+
+            try {
+                readSitemap(site, url, entries, queue, seen, limit);
+            } catch (IOException | IllegalArgumentException e) {
+                log.info("{}: не удалось прочитать sitemap {} - {}", site.getUrl(), url, e.getLocalizedMessage());
+            }
+        }
+
+        log.info("{}: из sitemap получено {} адресов", site.getUrl(), entries.size());
+        return entries;
+    }
+
+    private void readSitemap(Site site, String url, List<Entry> entries, ArrayDeque<String> queue,
+                             HashSet<String> seen, int limit) throws IOException, InterruptedException {
+        FetchResult response;
+        try (var permit = politenessScheduler.acquire(site)) {
+            response = pageFetcher.fetch(url);
+            permit.report(response.getStatusCode(), response.header("Retry-After"));
+        }
+
+        if (response.getStatusCode() != 200) {
+            log.info("{}: sitemap {} недоступен (HTTP {})", site.getUrl(), url, response.getStatusCode());
+            return;
+        }
+
+        var body = response.getBody();
+        if (body.length > 1 && body[0] == (byte) 0x1f && body[1] == (byte) 0x8b) {
+            body = PageFetcher.gunzip(body); // sitemap.xml.gz
+        }
+        if (body == null || response.isTruncated()) {
+            log.info("{}: sitemap {} больше допустимого размера и пропущен", site.getUrl(), url);
+            return;
+        }
+
+        var document = Jsoup.parse(new ByteArrayInputStream(body), null, url, Parser.xmlParser());
+
+        for (var loc : document.select("sitemapindex > sitemap > loc")) {
+            var sitemapUrl = loc.text().strip();
+            if (!sitemapUrl.isEmpty() && seen.add(sitemapUrl)) {
+                queue.add(sitemapUrl);
+            }
+        }
+
+        for (var element : document.select("urlset > url")) {
+            if (entries.size() >= limit) {
+                return;
+            }
+
+            var loc = element.selectFirst("> loc");
+            if (loc == null || loc.text().isBlank()) {
+                continue;
+            }
+
+            var lastmod = element.selectFirst("> lastmod");
+            entries.add(new Entry(loc.text().strip(), lastmod == null ? -1 : parseLastmod(lastmod.text())));
+        }
+    }
+
+    // W3C Datetime: 2024-01-31 или 2024-01-31T10:00:00+03:00
+    static long parseLastmod(String value) {
+        value = value.strip();
+        try {
+            return OffsetDateTime.parse(value).toEpochSecond();
+        } catch (Exception e) {
+            try {
+                return LocalDate.parse(value.substring(0, Math.min(value.length(), 10)))
+                        .atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+            } catch (Exception ignored) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @param lastModified время lastmod в секундах или -1
+     */
+    public record Entry(String url, long lastModified) {
+    }
+}
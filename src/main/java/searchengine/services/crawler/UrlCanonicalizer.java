@@ -0,0 +1,230 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.CanonicalRules;
+import searchengine.config.SitesList;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Приведение адресов к каноническому пути страницы сайта по правилам indexing-settings
+ * (или правилам сайта). Выполняется до проверки «уже встречалась?», поэтому варианты одного адреса
+ * загружаются один раз.
+ */
+@Component
+@RequiredArgsConstructor
+public class UrlCanonicalizer {
+
+    private static final String UNSAFE_CHARS = " \"<>\\^`{|}";
+
+    private final SitesList sitesList;
+
+    public CanonicalRules getRules(@NonNull String siteUrl) {
+        var settings = sitesList.findSite(siteUrl);
+        if (settings != null && settings.getCanonical() != null) {
+            return settings.getCanonical();
+        }
+
+        return sitesList.getCanonical();
+    }
+
+    /**
+     * Возвращает путь страницы относительно корня сайта или {@code null},
+     * если адрес не относится к сайту или некорректен.
+     *
+     * @param baseUrl адрес, относительно которого разрешается href; {@code null} - корень сайта
+     */
+    public String canonicalize(@NonNull String siteUrl, String baseUrl, @NonNull String href) {
+        return canonicalize(siteUrl, baseUrl, href, getRules(siteUrl));
+    }
+
+    /**
+     * Путь раздела сайта относительно корня хоста без завершающего «/» («» для сайта в корне хоста):
+     * путь страницы относительно корня хоста - sitePath + путь страницы. По нему проверяются правила robots.txt.
+     */
+    public static String sitePath(@NonNull String siteUrl) {
+        String sitePath;
+        try {
+            sitePath = URI.create(escape(siteUrl.strip())).getRawPath();
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+
+        if (sitePath == null) {
+            return "";
+        }
+        return sitePath.endsWith("/") ? sitePath.substring(0, sitePath.length() - 1) : sitePath;
+    }
+
+    static String canonicalize(String siteUrl, String baseUrl, String href, CanonicalRules rules) {
+        href = href.strip();
+        var fragmentIndex = href.indexOf('#');
+        if (fragmentIndex != -1) {
+            href = href.substring(0, fragmentIndex);
+        }
+        if (href.isEmpty()) {
+            return null;
+        }
+
+        URI site;
+        URI uri;
+        try {
+            site = URI.create(escape(siteUrl.strip()));
+            var base = baseUrl == null ? site : URI.create(escape(baseUrl.strip()));
+            uri = base.resolve(escape(href)).normalize();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        var scheme = uri.getScheme();
+        if (scheme == null || !(scheme.equalsIgnoreCase("http") || scheme.equalsIgnoreCase("https"))
+                || !isSameHost(site.getHost(), uri.getHost())) {
+            return null;
+        }
+
+        var path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        var sitePath = site.getRawPath() == null ? "" : site.getRawPath();
+        if (!rules.isCaseSensitive()) {
+            path = path.toLowerCase(Locale.ROOT);
+            sitePath = sitePath.toLowerCase(Locale.ROOT);
+        }
+
+        // Сайт может быть задан адресом раздела: https://site.ru/blog
+        if (sitePath.endsWith("/")) {
+            sitePath = sitePath.substring(0, sitePath.length() - 1);
+        }
+        if (!sitePath.isEmpty()) {
+            if (!path.equals(sitePath) && !path.startsWith(sitePath + "/")) {
+                return null;
+            }
+            path = path.substring(sitePath.length());
+        }
+
+        path = foldIndexFile(path, rules.getIndexFiles());
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+
+        var query = canonicalQuery(uri.getRawQuery(), rules);
+        return query.isEmpty() ? path : path + "?" + query;
+    }
+
+    /**
+     * Адрес относится к хосту сайта (с www или без).
+     */
+    static boolean isSiteHost(String siteUrl, String url) {
+        try {
+            return isSameHost(URI.create(escape(siteUrl.strip())).getHost(), URI.create(escape(url.strip())).getHost());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isSameHost(String siteHost, String host) {
+        if (siteHost == null || host == null) {
+            return false;
+        }
+
+        return stripWww(siteHost).equalsIgnoreCase(stripWww(host));
+    }
+
+    private static String stripWww(String host) {
+        return host.regionMatches(true, 0, "www.", 0, 4) ? host.substring(4) : host;
+    }
+
+    // /catalog/index.html -> /catalog/
+    private static String foldIndexFile(String path, List<String> indexFiles) {
+        var nameIndex = path.lastIndexOf('/') + 1;
+        var name = path.substring(nameIndex);
+
+        for (var indexFile : indexFiles) {
+            if (name.equalsIgnoreCase(indexFile)) {
+                return path.substring(0, nameIndex);
+            }
+        }
+
+        return path;
+    }
+
+    // Остаются разрешённые параметры, упорядоченные по имени
+    private static String canonicalQuery(String query, CanonicalRules rules) {
+        if (query == null || query.isEmpty() || rules.getKeepParams().isEmpty()) {
+            return "";
+        }
+
+        var params = new ArrayList<String>();
+        for (var param : query.split("&")) {
+            if (param.isEmpty()) {
+                continue;
+            }
+
+            var separatorIndex = param.indexOf('=');
+            var name = separatorIndex == -1 ? param : param.substring(0, separatorIndex);
+            if (matchesAny(name, rules.getKeepParams()) && !matchesAny(name, rules.getDropParams())) {
+                params.add(param);
+            }
+        }
+
+        params.sort(Comparator.comparing(param -> {
+            var separatorIndex = param.indexOf('=');
+            return separatorIndex == -1 ? param : param.substring(0, separatorIndex);
+        }));
+
+        return String.join("&", params);
+    }
+
+    private static boolean matchesAny(String name, List<String> patterns) {
+        for (var pattern : patterns) {
+            if (pattern.equals("*")) {
+                return true;
+            }
+            if (pattern.endsWith("*")) {
+                var prefix = pattern.substring(0, pattern.length() - 1);
+                if (name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                    return true;
+                }
+            } else if (name.equalsIgnoreCase(pattern)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Символы, которые встречаются в ссылках, но недопустимы в URI
+    private static String escape(String url) {
+        StringBuilder escaped = null;
+
+        for (int i = 0; i < url.length(); i++) {
+            var c = url.charAt(i);
+            var unsafe = UNSAFE_CHARS.indexOf(c) != -1
+                    || (c == '%' && !(i + 2 < url.length() && isHex(url.charAt(i + 1)) && isHex(url.charAt(i + 2))));
+
+            if (unsafe && escaped == null) {
+                escaped = new StringBuilder(url.length() + 8).append(url, 0, i);
+            }
+            if (escaped != null) {
+                if (unsafe) {
+                    escaped.append('%').append(String.format("%02X", (int) c));
+                } else {
+                    escaped.append(c);
+                }
+            }
+        }
+
+        return escaped == null ? url : escaped.toString();
+    }
+
+    private static boolean isHex(char c) {
+        return Character.digit(c, 16) != -1;
+    }
+}
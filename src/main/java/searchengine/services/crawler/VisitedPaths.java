@@ -0,0 +1,151 @@
+package searchengine.services.crawler;
+
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Множество путей сайта, уже поставленных в очередь обхода, без обращений к БД.
+ * Пути хранятся в виде 64-битных отпечатков в открытых хеш-таблицах на примитивных массивах,
+ * разбитых на сегменты со своей блокировкой. Для путей, сохранённых прошлыми обходами,
+ * хранится id страницы, чтобы обход мог загрузить её для повторного посещения.
+ */
+public class VisitedPaths {
+
+    public static final int CLAIMED = -1; // Путь уже поставлен в очередь
+    public static final int UNKNOWN = 0;  // Путь ещё не встречался и в БД его нет
+
+    private static final int SEGMENTS = 64;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public VisitedPaths() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Добавляет путь, известный до начала обхода.
+     *
+     * @param pageId  id сохранённой страницы
+     * @param claimed страница уже обработана текущим обходом и не должна посещаться снова
+     */
+    public void seed(@NonNull String path, int pageId, boolean claimed) {
+        var fingerprint = fingerprint(path);
+        segment(fingerprint).put(fingerprint, pageId, claimed);
+    }
+
+    /**
+     * Отмечает путь как поставленный в очередь.
+     *
+     * @return {@link #CLAIMED}, если путь уже был отмечен; id сохранённой страницы, если путь известен
+     * по прошлым обходам; {@link #UNKNOWN}, если путь новый
+     */
+    public int claim(@NonNull String path) {
+        var fingerprint = fingerprint(path);
+        return segment(fingerprint).claim(fingerprint);
+    }
+
+    public int size() {
+        var size = 0;
+        for (var segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    private Segment segment(long fingerprint) {
+        return segments[(int) (fingerprint >>> 58)]; // Старшие 6 бит - номер сегмента
+    }
+
+    // 64-битный FNV-1a по UTF-8 с финальным перемешиванием
+    static long fingerprint(String path) {
+        var hash = 0xcbf29ce484222325L;
+        for (var b : path.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+
+        return hash == 0 ? 1 : hash; // 0 - признак пустой ячейки
+    }
+
+    private static class Segment {
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private int[] pageIds = new int[INITIAL_CAPACITY];
+        private boolean[] claimed = new boolean[INITIAL_CAPACITY];
+        private int size = 0;
+
+        private synchronized void put(long key, int pageId, boolean isClaimed) {
+            var index = find(key);
+            if (keys[index] == 0) {
+                keys[index] = key;
+                size++;
+            }
+            pageIds[index] = pageId;
+            claimed[index] = isClaimed;
+
+            ensureCapacity();
+        }
+
+        private synchronized int claim(long key) {
+            var index = find(key);
+            if (keys[index] == 0) {
+                keys[index] = key;
+                claimed[index] = true;
+                size++;
+                ensureCapacity();
+                return UNKNOWN;
+            }
+
+            if (claimed[index]) {
+                return CLAIMED;
+            }
+
+            claimed[index] = true;
+            return pageIds[index];
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private int find(long key) {
+            var mask = keys.length - 1;
+            var index = (int) key & mask;
+            while (keys[index] != 0 && keys[index] != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private void ensureCapacity() {
+            if (size * 2 < keys.length) {
+                return;
+            }
+
+            var oldKeys = keys;
+            var oldPageIds = pageIds;
+            var oldClaimed = claimed;
+
+            keys = new long[oldKeys.length * 2];
+            pageIds = new int[keys.length];
+            claimed = new boolean[keys.length];
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == 0) {
+                    continue;
+                }
+                var index = find(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                pageIds[index] = oldPageIds[i];
+                claimed[index] = oldClaimed[i];
+            }
+        }
+    }
+}
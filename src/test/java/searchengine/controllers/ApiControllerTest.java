@@ -7,6 +7,8 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.ResponseEntity;
 import searchengine.dto.indexing.IndexPageRequest;
+import searchengine.dto.indexing.IndexingJobItem;
+import searchengine.dto.indexing.IndexingJobsResponse;
 import searchengine.dto.indexing.IndexingResponse;
 import searchengine.dto.search.SearchResponse;
 import searchengine.services.IndexingService;
@@ -83,6 +85,156 @@ class ApiControllerTest {
     }
 
 
+    @Test
+    void startSiteIndexingShouldReturnErrorWhenSiteIndexingAlreadyRunning() {
+
+        String siteUrl = "https://www.playback.ru";
+
+        IndexingResponse expectedResponse = new IndexingResponse();
+        expectedResponse.setResult(false);
+        expectedResponse.setError("Индексация сайта уже запущена");
+
+        when(indexingService.startSiteIndexing(siteUrl)).thenReturn(expectedResponse);
+
+
+        ResponseEntity<IndexingResponse> actualResponse = apiController.startSiteIndexing(siteUrl);
+
+
+        assertAll(
+                () -> assertEquals(400, actualResponse.getStatusCodeValue(), "HTTP status should be 400"),
+                () -> assertFalse(actualResponse.getBody().isResult(), "Result should be false"),
+                () -> assertEquals("Индексация сайта уже запущена", actualResponse.getBody().getError(), "Error message mismatch")
+        );
+        verify(indexingService, times(1)).startSiteIndexing(siteUrl);
+    }
+
+
+    @Test
+    void stopSiteIndexingShouldReturnErrorWhenSiteIndexingNotRunning() {
+
+        String siteUrl = "https://www.playback.ru";
+
+        IndexingResponse expectedResponse = new IndexingResponse();
+        expectedResponse.setResult(false);
+        expectedResponse.setError("Индексация сайта не запущена");
+
+        when(indexingService.stopSiteIndexing(siteUrl)).thenReturn(expectedResponse);
+
+
+        ResponseEntity<IndexingResponse> actualResponse = apiController.stopSiteIndexing(siteUrl);
+
+
+        assertAll(
+                () -> assertEquals(400, actualResponse.getStatusCodeValue(), "HTTP status should be 400"),
+                () -> assertFalse(actualResponse.getBody().isResult(), "Result should be false"),
+                () -> assertEquals("Индексация сайта не запущена", actualResponse.getBody().getError(), "Error message mismatch")
+        );
+        verify(indexingService, times(1)).stopSiteIndexing(siteUrl);
+        verify(indexingService, never()).stopIndexing();
+    }
+
+
+    @Test
+    void stopSiteIndexingShouldReturnOkWhenSiteIndexingStopped() {
+
+        String siteUrl = "https://www.playback.ru";
+
+        IndexingResponse expectedResponse = new IndexingResponse();
+        expectedResponse.setResult(true);
+
+        when(indexingService.stopSiteIndexing(siteUrl)).thenReturn(expectedResponse);
+
+
+        ResponseEntity<IndexingResponse> actualResponse = apiController.stopSiteIndexing(siteUrl);
+
+
+        assertAll(
+                () -> assertEquals(200, actualResponse.getStatusCodeValue(), "HTTP status should be 200"),
+                () -> assertTrue(actualResponse.getBody().isResult(), "Result should be true"),
+                () -> assertNull(actualResponse.getBody().getError(), "Error should be empty")
+        );
+        verify(indexingService, times(1)).stopSiteIndexing(siteUrl);
+        verify(indexingService, never()).stopIndexing();
+    }
+
+
+    @Test
+    void indexNewSitesShouldReturnErrorWhenNoNewSites() {
+
+        IndexingResponse expectedResponse = new IndexingResponse();
+        expectedResponse.setResult(false);
+        expectedResponse.setError("Новых сайтов для индексации нет");
+
+        when(indexingService.indexNewSites()).thenReturn(expectedResponse);
+
+
+        ResponseEntity<IndexingResponse> actualResponse = apiController.indexNewSites();
+
+
+        assertAll(
+                () -> assertEquals(400, actualResponse.getStatusCodeValue(), "HTTP status should be 400"),
+                () -> assertFalse(actualResponse.getBody().isResult(), "Result should be false"),
+                () -> assertEquals("Новых сайтов для индексации нет", actualResponse.getBody().getError(), "Error message mismatch")
+        );
+        verify(indexingService, times(1)).indexNewSites();
+        verify(indexingService, never()).startIndexing();
+    }
+
+
+    @Test
+    void indexNewSitesShouldReturnOkWhenNewSitesStarted() {
+
+        IndexingResponse expectedResponse = new IndexingResponse();
+        expectedResponse.setResult(true);
+
+        when(indexingService.indexNewSites()).thenReturn(expectedResponse);
+
+
+        ResponseEntity<IndexingResponse> actualResponse = apiController.indexNewSites();
+
+
+        assertAll(
+                () -> assertEquals(200, actualResponse.getStatusCodeValue(), "HTTP status should be 200"),
+                () -> assertTrue(actualResponse.getBody().isResult(), "Result should be true")
+        );
+        verify(indexingService, times(1)).indexNewSites();
+    }
+
+
+    @Test
+    void indexingJobsShouldReturnJobsOfEachSite() {
+
+        IndexingJobItem runningJob = new IndexingJobItem();
+        runningJob.setUrl("https://www.playback.ru");
+        runningJob.setState("indexing");
+        runningJob.setPages(120);
+
+        IndexingJobItem stoppedJob = new IndexingJobItem();
+        stoppedJob.setUrl("https://skillbox.ru");
+        stoppedJob.setState("finished");
+        stoppedJob.setStopLatency(35L);
+
+        IndexingJobsResponse expectedResponse = new IndexingJobsResponse();
+        expectedResponse.setResult(true);
+        expectedResponse.setJobs(List.of(runningJob, stoppedJob));
+
+        when(indexingService.getJobs()).thenReturn(expectedResponse);
+
+
+        ResponseEntity<IndexingJobsResponse> actualResponse = apiController.indexingJobs();
+
+
+        assertAll(
+                () -> assertEquals(200, actualResponse.getStatusCodeValue(), "HTTP status should be 200"),
+                () -> assertTrue(actualResponse.getBody().isResult(), "Result should be true"),
+                () -> assertEquals(2, actualResponse.getBody().getJobs().size(), "Jobs count mismatch"),
+                () -> assertEquals("indexing", actualResponse.getBody().getJobs().get(0).getState(), "Running job state mismatch"),
+                () -> assertEquals("finished", actualResponse.getBody().getJobs().get(1).getState(), "Stopped job state mismatch")
+        );
+        verify(indexingService, times(1)).getJobs();
+    }
+
+
     @Test
     void indexPageShouldReturnErrorForInvalidUrl() {
 
@@ -0,0 +1,36 @@
+package searchengine.dto.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimHashTest {
+
+    @Test
+    void computeShouldReturnCloseHashesForNearDuplicates() {
+        String catalog = catalogText("Смартфон");
+        Long original = SimHash.compute(catalog);
+        Long printVersion = SimHash.compute(catalog + " Версия для печати.");
+        Long other = SimHash.compute(catalogText("Ноутбук"));
+
+        assertAll(
+                () -> assertNotNull(original, "Hash expected"),
+                () -> assertTrue(SimHash.distance(original, printVersion) <= 3, "Near-duplicate should be close"),
+                () -> assertTrue(SimHash.distance(original, other) > 3, "Different text should be far")
+        );
+    }
+
+    @Test
+    void computeShouldSkipShortText() {
+        assertNull(SimHash.compute("Корзина пуста"), "Short text should have no hash");
+    }
+
+    private static String catalogText(String product) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 60; i++) {
+            text.append(product).append(" модель ").append(i)
+                    .append(" в наличии, цена ").append(i * 37 % 101).append(" рублей. ");
+        }
+        return text.toString();
+    }
+}
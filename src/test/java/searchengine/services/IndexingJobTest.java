@@ -0,0 +1,60 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+import searchengine.model.IndexingStatus;
+import searchengine.model.Page;
+import searchengine.model.Site;
+import searchengine.services.crawler.SiteCrawl;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexingJobTest {
+
+    @Test
+    void cancelShouldStopOnlyOwnSite() {
+        IndexingJob first = createJob("https://www.playback.ru");
+        IndexingJob second = createJob("https://skillbox.ru");
+
+        first.cancel();
+
+        assertAll(
+                () -> assertTrue(first.isCancelling(), "Cancelled job should be stopping"),
+                () -> assertTrue(first.getCrawl().isStopped(), "Cancelled crawl should be stopped"),
+                () -> assertFalse(second.isCancelling(), "Other job should keep running"),
+                () -> assertFalse(second.getCrawl().isStopped(), "Other crawl should keep running"),
+                () -> assertNull(first.getStopLatency(), "Latency is known only after stop")
+        );
+    }
+
+    @Test
+    void stoppedShouldRecordStopLatencyAndFinish() {
+        IndexingJob job = createJob("https://www.playback.ru");
+
+        job.cancel();
+        job.stopped();
+        job.finish();
+
+        assertAll(
+                () -> assertNotNull(job.getStopLatency(), "Stop latency expected"),
+                () -> assertTrue(job.getStopLatency() >= 0, "Stop latency should not be negative"),
+                () -> assertTrue(job.isDone(), "Job should be done"),
+                () -> assertEquals("https://www.playback.ru", job.getUrl(), "Url mismatch")
+        );
+    }
+
+    private IndexingJob createJob(String url) {
+        Site site = new Site();
+        site.setUrl(url);
+        site.setName(url);
+        site.setStatus(IndexingStatus.INDEXING);
+        site.setStatusTime(LocalDateTime.now());
+
+        Page rootPage = new Page();
+        rootPage.setSite(site);
+        rootPage.setPath("/");
+
+        return new IndexingJob(new SiteCrawl(rootPage, 1));
+    }
+}
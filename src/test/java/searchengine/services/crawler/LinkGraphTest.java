@@ -0,0 +1,76 @@
+package searchengine.services.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinkGraphTest {
+
+    @Test
+    void encodeLinksShouldSkipSelfLink() {
+        byte[] links = LinkGraph.encodeLinks(List.of("/news", "/", "/about"), "/");
+        long[] fingerprints = LinkGraph.decodeLinks(links);
+
+        assertAll(
+                () -> assertEquals(2, fingerprints.length, "Self link should be skipped"),
+                () -> assertEquals(VisitedPaths.fingerprint("/news"), fingerprints[0], "Fingerprint mismatch"),
+                () -> assertEquals(VisitedPaths.fingerprint("/about"), fingerprints[1], "Fingerprint mismatch"),
+                () -> assertEquals(0, LinkGraph.decodeLinks(null).length, "Missing links should be empty")
+        );
+    }
+
+    @Test
+    void builderShouldReuseNodeOfRepeatedPath() {
+        LinkGraph.Builder builder = new LinkGraph.Builder(2);
+        int first = builder.addNode("/news");
+        int second = builder.addNode("/about");
+
+        assertAll(
+                () -> assertEquals(first, builder.addNode("/news"), "Repeated path should keep its node"),
+                () -> assertEquals(second, builder.nodeOf(VisitedPaths.fingerprint("/about")), "Node mismatch"),
+                () -> assertEquals(-1, builder.nodeOf(VisitedPaths.fingerprint("/contacts")), "Unknown path"),
+                () -> assertThrows(IllegalStateException.class, () -> builder.addNode("/contacts"),
+                        "Node limit should be checked")
+        );
+    }
+
+    @Test
+    void pageRankShouldPreferLinkedPage() {
+        LinkGraph.Builder builder = new LinkGraph.Builder(4);
+        int hub = builder.addNode("/");
+        for (String path : List.of("/a", "/b", "/c")) {
+            int node = builder.addNode(path);
+            builder.addEdge(node, hub);
+            builder.addEdge(hub, node);
+        }
+        builder.addEdge(hub, hub);
+
+        LinkGraph graph = builder.build();
+        double[] rank = graph.pageRank(0.85, 100, 1e-9);
+
+        assertAll(
+                () -> assertEquals(6, graph.getEdges(), "Self link should be skipped"),
+                () -> assertTrue(rank[hub] > rank[1], "Linked page should have higher rank"),
+                () -> assertEquals(rank[1], rank[3], 1e-9, "Symmetric pages should have equal rank"),
+                () -> assertEquals(4, rank[0] + rank[1] + rank[2] + rank[3], 1e-6, "Mean rank should be 1")
+        );
+    }
+
+    @Test
+    void pageRankShouldSpreadDanglingRank() {
+        LinkGraph.Builder builder = new LinkGraph.Builder(3);
+        int first = builder.addNode("/a");
+        int second = builder.addNode("/b");
+        builder.addNode("/c");
+        builder.addEdge(first, second);
+
+        double[] rank = builder.build().pageRank(0.85, 100, 1e-9);
+
+        assertAll(
+                () -> assertEquals(3, rank[0] + rank[1] + rank[2], 1e-6, "Rank should not be lost"),
+                () -> assertTrue(rank[second] > rank[first], "Linked page should have higher rank")
+        );
+    }
+}
@@ -0,0 +1,53 @@
+package searchengine.services.crawler;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.PathRules;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathFilterTest {
+
+    @Test
+    void isAllowedShouldApplyPatterns() {
+        PathRules rules = new PathRules();
+        rules.setInclude(List.of("/catalog*", "/news/*"));
+        rules.setExclude(List.of("/catalog/print/*", "*sort=*"));
+
+        assertAll(
+                () -> assertTrue(PathFilter.isAllowed("/catalog/phones", rules), "Included path"),
+                () -> assertTrue(PathFilter.isAllowed("/News/2024", rules), "Case insensitive"),
+                () -> assertFalse(PathFilter.isAllowed("/about", rules), "Not included"),
+                () -> assertFalse(PathFilter.isAllowed("/catalog/print/phones", rules), "Excluded path"),
+                () -> assertFalse(PathFilter.isAllowed("/catalog?page=2&sort=asc", rules), "Excluded query")
+        );
+    }
+
+    @Test
+    void isTrapShouldDetectTrapPaths() {
+        PathRules rules = new PathRules();
+        rules.setMaxSegments(5);
+        rules.setMaxSegmentRepeats(2);
+
+        assertAll(
+                () -> assertFalse(PathFilter.isTrap("/", rules), "Root path"),
+                () -> assertFalse(PathFilter.isTrap("/a/b/a/b", rules), "Allowed repeats"),
+                () -> assertTrue(PathFilter.isTrap("/a/b/a/b/a", rules), "Repeating segments"),
+                () -> assertTrue(PathFilter.isTrap("/1/2/3/4/5/6", rules), "Too deep path"),
+                () -> assertTrue(PathFilter.isAllowed("/1/2/3/4/5/6", rules), "Trap signs are not path rules")
+        );
+    }
+
+    @Test
+    void toTemplateShouldReplaceVariableParts() {
+        assertAll(
+                () -> assertEquals("/", PathFilter.toTemplate("/"), "Root path"),
+                () -> assertEquals("/calendar/*/*", PathFilter.toTemplate("/calendar/2024/01"), "Numeric segments"),
+                () -> assertEquals("/catalog?color=*&size=*", PathFilter.toTemplate("/catalog?color=red&size=m"),
+                        "Query values"),
+                () -> assertEquals(PathFilter.toTemplate("/item/a1?id=5"), PathFilter.toTemplate("/item/b2?id=7"),
+                        "Same template")
+        );
+    }
+}
@@ -0,0 +1,32 @@
+package searchengine.services.crawler;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.RevisitSettings;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevisitPolicyTest {
+
+    @Test
+    void nextIntervalShouldShrinkForChangedAndGrowForStablePages() {
+        RevisitSettings settings = new RevisitSettings();
+
+        assertAll(
+                () -> assertEquals(1440, RevisitPolicy.nextInterval(null, null, settings), "Initial interval expected"),
+                () -> assertEquals(720, RevisitPolicy.nextInterval(1440, true, settings), "Changed page halves"),
+                () -> assertEquals(2160, RevisitPolicy.nextInterval(1440, false, settings), "Stable page grows")
+        );
+    }
+
+    @Test
+    void nextIntervalShouldStayWithinBounds() {
+        RevisitSettings settings = new RevisitSettings();
+        settings.setMinInterval(60);
+        settings.setMaxInterval(1000);
+
+        assertAll(
+                () -> assertEquals(60, RevisitPolicy.nextInterval(90, true, settings), "Min interval expected"),
+                () -> assertEquals(1000, RevisitPolicy.nextInterval(900, false, settings), "Max interval expected")
+        );
+    }
+}
@@ -0,0 +1,70 @@
+package searchengine.services.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RobotsRulesTest {
+
+    private static final String ROBOTS_TXT = """
+            User-agent: *
+            Disallow: /private
+            Allow: /private/open
+            Disallow: /*.pdf$
+            Crawl-delay: 2.5
+
+            User-agent: my-bot
+            User-agent: other-bot
+            Disallow: /search
+
+            Sitemap: https://example.com/sitemap.xml
+            """;
+
+    @Test
+    void parseShouldApplyLongestMatchingRule() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS_TXT, "some-bot");
+
+        assertAll(
+                () -> assertFalse(rules.isAllowed("/private/data"), "Disallowed path should be rejected"),
+                () -> assertTrue(rules.isAllowed("/private/open/page"), "Longer Allow rule should win"),
+                () -> assertFalse(rules.isAllowed("/files/doc.pdf"), "Wildcard with anchor should match"),
+                () -> assertTrue(rules.isAllowed("/files/doc.pdf.html"), "Anchored rule should not match"),
+                () -> assertTrue(rules.isAllowed("/catalog"), "Path without rules should be allowed"),
+                () -> assertEquals(2500, rules.getCrawlDelay(), "Crawl-delay mismatch")
+        );
+    }
+
+    @Test
+    void parseShouldSelectGroupOfOwnUserAgent() {
+        RobotsRules rules = RobotsRules.parse(ROBOTS_TXT, "my-bot");
+
+        assertAll(
+                () -> assertFalse(rules.isAllowed("/search"), "Own group rule should be applied"),
+                () -> assertTrue(rules.isAllowed("/private/data"), "Rules of group * should be ignored"),
+                () -> assertEquals(-1, rules.getCrawlDelay(), "Crawl-delay of group * should be ignored"),
+                () -> assertEquals(List.of("https://example.com/sitemap.xml"), rules.getSitemaps(), "Sitemaps mismatch")
+        );
+    }
+
+    @Test
+    void isAllowedShouldIgnoreCaseOnlyWhenRequested() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow: /Admin/\nDisallow: /section/private\n", "my-bot");
+
+        assertAll(
+                () -> assertTrue(rules.isAllowed("/admin/users"), "Case sensitive by default"),
+                () -> assertFalse(rules.isAllowed("/admin/users", true), "Lowercased path should match"),
+                () -> assertFalse(rules.isAllowed("/Admin/users", true), "Original path should match"),
+                () -> assertFalse(rules.isAllowed(UrlCanonicalizer.sitePath("https://example.com/section") + "/private",
+                        true), "Section path should be restored")
+        );
+    }
+
+    @Test
+    void emptyDisallowShouldAllowEverything() {
+        RobotsRules rules = RobotsRules.parse("User-agent: *\nDisallow:\n", "my-bot");
+
+        assertTrue(rules.isAllowed("/any/path"), "Empty Disallow should allow everything");
+    }
+}
@@ -0,0 +1,85 @@
+package searchengine.services.crawler;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.CanonicalRules;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlCanonicalizerTest {
+
+    private static final String SITE = "https://www.playback.ru";
+
+    @Test
+    void canonicalizeShouldApplyDefaultRules() {
+        CanonicalRules rules = new CanonicalRules();
+        String page = SITE + "/catalog/phones.html";
+
+        assertAll(
+                () -> assertEquals("/", UrlCanonicalizer.canonicalize(SITE, null, "/", rules), "Root path"),
+                () -> assertEquals("/catalog", UrlCanonicalizer.canonicalize(SITE, null, "/Catalog/", rules),
+                        "Trailing slash and case"),
+                () -> assertEquals("/catalog", UrlCanonicalizer.canonicalize(SITE, null, "/catalog/index.html", rules),
+                        "Index file folding"),
+                () -> assertEquals("/catalog/1", UrlCanonicalizer.canonicalize(SITE, page, "1?sort=asc#top", rules),
+                        "Relative link, query and fragment"),
+                () -> assertEquals("/about", UrlCanonicalizer.canonicalize(SITE, page, "https://playback.ru/about",
+                        rules), "Host without www"),
+                () -> assertNull(UrlCanonicalizer.canonicalize(SITE, page, "https://lenta.ru/news", rules),
+                        "Other site"),
+                () -> assertNull(UrlCanonicalizer.canonicalize(SITE, page, "mailto:info@playback.ru", rules),
+                        "Not http link")
+        );
+    }
+
+    @Test
+    void canonicalizeShouldKeepConfiguredParams() {
+        CanonicalRules rules = new CanonicalRules();
+        rules.setKeepParams(List.of("*"));
+        rules.setDropParams(List.of("utm_*", "sessionid"));
+        rules.setCaseSensitive(true);
+
+        assertAll(
+                () -> assertEquals("/Catalog?id=5&page=2", UrlCanonicalizer.canonicalize(SITE, null,
+                        "/Catalog?page=2&utm_source=mail&id=5&SessionId=1", rules), "Sorted kept params"),
+                () -> assertEquals("/catalog", UrlCanonicalizer.canonicalize(SITE, null, "/catalog?utm_medium=x",
+                        rules), "All params dropped")
+        );
+    }
+
+    @Test
+    void canonicalizeShouldStayInsideSiteSection() {
+        CanonicalRules rules = new CanonicalRules();
+        String site = "https://skillbox.ru/media";
+
+        assertAll(
+                () -> assertEquals("/code/java", UrlCanonicalizer.canonicalize(site, null,
+                        "https://skillbox.ru/media/code/java/", rules), "Path inside section"),
+                () -> assertNull(UrlCanonicalizer.canonicalize(site, null, "https://skillbox.ru/courses", rules),
+                        "Path outside section")
+        );
+    }
+
+    @Test
+    void isSiteHostShouldAcceptOnlyOwnHost() {
+        assertAll(
+                () -> assertTrue(UrlCanonicalizer.isSiteHost(SITE, "https://playback.ru/sitemap.xml"), "Host without www"),
+                () -> assertTrue(UrlCanonicalizer.isSiteHost(SITE, "http://WWW.playback.ru/s.xml.gz"), "Host case"),
+                () -> assertFalse(UrlCanonicalizer.isSiteHost(SITE, "https://cdn.example.com/sitemap.xml"), "Other host"),
+                () -> assertFalse(UrlCanonicalizer.isSiteHost(SITE, "not a url"), "Invalid url")
+        );
+    }
+
+    @Test
+    void sitePathShouldRestoreRootRelativePath() {
+        assertAll(
+                () -> assertEquals("", UrlCanonicalizer.sitePath(SITE), "Site at host root"),
+                () -> assertEquals("", UrlCanonicalizer.sitePath(SITE + "/"), "Site at host root with slash"),
+                () -> assertEquals("/media", UrlCanonicalizer.sitePath("https://skillbox.ru/media/"), "Site section"),
+                () -> assertEquals("/Media/code", UrlCanonicalizer.sitePath("https://skillbox.ru/Media")
+                        + UrlCanonicalizer.canonicalize("https://skillbox.ru/Media", null,
+                        "https://skillbox.ru/Media/code", new CanonicalRules()), "Section keeps its case")
+        );
+    }
+}
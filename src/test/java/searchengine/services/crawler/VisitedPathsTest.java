@@ -0,0 +1,50 @@
+package searchengine.services.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VisitedPathsTest {
+
+    @Test
+    void claimShouldReturnUnknownOnlyForFirstCall() {
+        VisitedPaths visited = new VisitedPaths();
+
+        int first = visited.claim("/catalog");
+        int second = visited.claim("/catalog");
+
+        assertAll(
+                () -> assertEquals(VisitedPaths.UNKNOWN, first, "New path should be unknown"),
+                () -> assertEquals(VisitedPaths.CLAIMED, second, "Repeated path should be claimed"),
+                () -> assertEquals(1, visited.size(), "Size mismatch")
+        );
+    }
+
+    @Test
+    void claimShouldReturnSeededPageIdOnce() {
+        VisitedPaths visited = new VisitedPaths();
+        visited.seed("/news", 42, false);
+        visited.seed("/about", 7, true);
+
+        assertAll(
+                () -> assertEquals(42, visited.claim("/news"), "Seeded page id expected"),
+                () -> assertEquals(VisitedPaths.CLAIMED, visited.claim("/news"), "Page should be claimed once"),
+                () -> assertEquals(VisitedPaths.CLAIMED, visited.claim("/about"), "Crawled page should be claimed")
+        );
+    }
+
+    @Test
+    void claimShouldKeepAllPathsAfterGrowth() {
+        VisitedPaths visited = new VisitedPaths();
+        int count = 100_000;
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(VisitedPaths.UNKNOWN, visited.claim("/page/" + i), "Path should be new");
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(VisitedPaths.CLAIMED, visited.claim("/page/" + i), "Path should be claimed");
+        }
+        assertEquals(count, visited.size(), "Size mismatch");
+    }
+}